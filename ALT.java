@@ -0,0 +1,131 @@
+/**
+ * Point-to-point queries by A* search with landmark lower bounds (ALT: A*,
+ * landmarks and the triangle inequality) on a CSR graph with only
+ * non-negative edges.
+ *
+ * The search is Dijkstra from the source, except that a vertex v is keyed by
+ * d(s,v) plus a lower bound on d(v,t) taken from the Landmarks. The bounds are
+ * consistent, so every vertex is settled once, and the search stops when t is
+ * settled. Vertices that lead away from t get large keys and are never
+ * settled.
+ *
+ * The search lives in a SearchState that is reused by every query, so an ALT
+ * object is for one thread at a time.
+ *
+ * Usage: Landmarks lm = Landmarks.farthest(g, 16, 1);
+ *        ALT alt = new ALT(g, lm);
+ *        int d = alt.distance(s, t);
+ */
+
+public class ALT {
+	private final CSRGraph g;
+	private final Landmarks lm;
+	private final SearchState s;
+	private final HeapType heapType;
+	private int settled; // vertices settled by the last query
+
+	/**
+	 * Constructor for ALT
+	 *
+	 * @param g
+	 *            : CSRGraph - with only non-negative edges
+	 * @param lm
+	 *            : Landmarks - computed on g
+	 */
+	ALT(CSRGraph g, Landmarks lm) {
+		this(g, lm, HeapType.BINARY);
+	}
+
+	/**
+	 * Constructor for ALT
+	 *
+	 * @param g
+	 *            : CSRGraph - with only non-negative edges
+	 * @param lm
+	 *            : Landmarks - computed on g
+	 * @param heapType
+	 *            : HeapType - priority queue of the search
+	 */
+	ALT(CSRGraph g, Landmarks lm, HeapType heapType) {
+		if (!g.nonNegative)
+			throw new IllegalArgumentException("ALT needs non-negative edge weights");
+		if (lm.numNodes != g.numNodes)
+			throw new IllegalArgumentException("Landmarks are for a different graph");
+		this.g = g;
+		this.lm = lm;
+		this.heapType = heapType;
+		s = new SearchState(g.numNodes);
+	}
+
+	/**
+	 * Length of the shortest path from src to t
+	 *
+	 * @param src:
+	 *            int - source
+	 * @param t:
+	 *            int - target
+	 * @return: int - the distance, SearchState.INF if t cannot be reached
+	 */
+	public int distance(int src, int t) {
+		search(src, t);
+		return s.distance(t);
+	}
+
+	/**
+	 * A shortest path from src to t
+	 *
+	 * @param src:
+	 *            int - source
+	 * @param t:
+	 *            int - target
+	 * @return: int[] - the vertices of the path from src to t, null if t
+	 *          cannot be reached
+	 */
+	public int[] path(int src, int t) {
+		search(src, t);
+		if (s.distance(t) == SearchState.INF)
+			return null;
+		int n = 0;
+		for (int u = t; u != 0; u = s.parent(u))
+			n++;
+		int[] path = new int[n];
+		for (int u = t; u != 0; u = s.parent(u))
+			path[--n] = u;
+		return path;
+	}
+
+	/**
+	 * @return: int - number of vertices settled by the last query
+	 */
+	public int settled() {
+		return settled;
+	}
+
+	private void search(int src, int t) {
+		s.initialize(src);
+		IntPQ heap = s.heap(heapType);
+		heap.insert(src, lm.lowerBound(src, t));
+		settled = 0;
+		while (!heap.isEmpty()) {
+			int u = heap.deleteMin();
+			s.setSeen(u, true);
+			settled++;
+			if (u == t)
+				return;
+			int du = s.distance(u);
+			for (int e = g.begin(u); e < g.end(u); e++) {
+				int v = g.target(e);
+				int dv = du + g.weight(e);
+				if (s.seen(v) || s.distance(v) <= dv)
+					continue;
+				s.setDistance(v, dv);
+				s.setParent(v, u);
+				long key = (long) dv + lm.lowerBound(v, t);
+				if (heap.contains(v))
+					heap.decreaseKey(v, key);
+				else
+					heap.insert(v, key);
+			}
+		}
+	}
+}
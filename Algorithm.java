@@ -0,0 +1,19 @@
+/**
+ * The shortest path algorithms that shortestPath can pick for a graph. The
+ * label is what gets printed in front of the sum of the distances.
+ *
+ */
+public enum Algorithm {
+	BFS("BFS"), DAG("DAG"), DIJKSTRA("Dij"), BELLMAN_FORD("B-F"), DELTA_STEPPING("D-S"), SCC_HYBRID(
+			"SCC"), GOLDBERG_RADZIK("G-R"), COST_SCALING("C-S");
+
+	public final String label;
+
+	Algorithm(String label) {
+		this.label = label;
+	}
+
+	public String toString() {
+		return label;
+	}
+}
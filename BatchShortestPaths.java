@@ -0,0 +1,195 @@
+/**
+ * Runs shortestPath.solve from many sources of one CSRGraph at the same time
+ * and streams a compact result per source back to the caller.
+ *
+ * Every worker thread owns a SearchState and takes the next source from a
+ * shared counter. Finished results go through a bounded queue that the
+ * calling thread drains into the consumer, so when the consumer is slow the
+ * workers wait instead of piling up results (backpressure).
+ *
+ * Usage: BatchShortestPaths batch = new BatchShortestPaths(g, 8, 1024);
+ *        batch.run(sources, false, r -> System.out.println(r));
+ *        batch.shutdown();
+ */
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.Consumer;
+
+public class BatchShortestPaths {
+	private final CSRGraph g;
+	private final int parallelism;
+	private final int capacity;
+	private final ExecutorService pool;
+	private final boolean ownPool;
+
+	/**
+	 * Shortest path result for one source
+	 */
+	public static class Result {
+		public final int source;
+		public final Algorithm algorithm; // null if there is a negative cycle
+		public final int reached; // vertices with a finite distance
+		public final long sumOfShortestPaths; // same sum as sumOfShortestPaths
+		public final int[] distance; // indexed by vertex; null if not kept
+		public final int[] parent; // indexed by vertex; null if not kept
+
+		Result(int source, Algorithm algorithm, int reached, long sum, int[] distance, int[] parent) {
+			this.source = source;
+			this.algorithm = algorithm;
+			this.reached = reached;
+			this.sumOfShortestPaths = sum;
+			this.distance = distance;
+			this.parent = parent;
+		}
+
+		public String toString() {
+			if (algorithm == null)
+				return source + " negative cycle";
+			return source + " " + algorithm + " " + sumOfShortestPaths + " " + reached;
+		}
+	}
+
+	private static final Result DONE = new Result(0, null, 0, 0, null, null);
+
+	/**
+	 * Constructor for BatchShortestPaths with its own fixed thread pool
+	 *
+	 * @param g
+	 *            : CSRGraph
+	 * @param parallelism
+	 *            : int - number of sources solved at the same time
+	 * @param capacity
+	 *            : int - results that may wait for the consumer
+	 */
+	BatchShortestPaths(CSRGraph g, int parallelism, int capacity) {
+		this(g, parallelism, capacity, Executors.newFixedThreadPool(parallelism), true);
+	}
+
+	/**
+	 * Constructor for BatchShortestPaths on a given executor, e.g. a virtual
+	 * thread executor. The executor is not shut down by shutdown().
+	 *
+	 * @param g
+	 *            : CSRGraph
+	 * @param parallelism
+	 *            : int - number of sources solved at the same time
+	 * @param capacity
+	 *            : int - results that may wait for the consumer
+	 * @param pool
+	 *            : ExecutorService - runs the workers
+	 */
+	BatchShortestPaths(CSRGraph g, int parallelism, int capacity, ExecutorService pool) {
+		this(g, parallelism, capacity, pool, false);
+	}
+
+	private BatchShortestPaths(CSRGraph g, int parallelism, int capacity, ExecutorService pool, boolean ownPool) {
+		if (parallelism < 1 || capacity < 1)
+			throw new IllegalArgumentException("parallelism and capacity must be positive");
+		this.g = g;
+		this.parallelism = parallelism;
+		this.capacity = capacity;
+		this.pool = pool;
+		this.ownPool = ownPool;
+	}
+
+	/**
+	 * Solve from every source and hand the results to out, in the order they
+	 * finish. out is called on the calling thread only.
+	 *
+	 * @param sources
+	 *            : int[] - source vertices
+	 * @param keepTrees
+	 *            : boolean - true to keep the distance and parent arrays,
+	 *            false for the aggregates only
+	 * @param out
+	 *            : Consumer<Result> - receives one result per source
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting
+	 */
+	void run(int[] sources, boolean keepTrees, Consumer<Result> out) throws InterruptedException {
+		BlockingQueue<Result> results = new ArrayBlockingQueue<>(capacity);
+		AtomicInteger next = new AtomicInteger();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		AtomicBoolean abandoned = new AtomicBoolean(); // nobody drains results
+		int workers = Math.min(parallelism, Math.max(sources.length, 1));
+		Future<?>[] tasks = new Future<?>[workers];
+
+		for (int w = 0; w < workers; w++) {
+			tasks[w] = pool.submit(() -> {
+				SearchState s = new SearchState(g.numNodes);
+				try {
+					int i;
+					while (failure.get() == null && (i = next.getAndIncrement()) < sources.length)
+						results.put(solve(sources[i], s, keepTrees));
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				} finally {
+					try {
+						if (abandoned.get())
+							results.offer(DONE);
+						else
+							results.put(DONE);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+		}
+
+		try {
+			int finished = 0;
+			while (finished < workers) {
+				Result r = results.take();
+				if (r == DONE)
+					finished++;
+				else if (failure.get() == null)
+					out.accept(r);
+			}
+		} catch (InterruptedException | RuntimeException e) {
+			failure.compareAndSet(null, e);
+			abandoned.set(true);
+			for (Future<?> t : tasks)
+				t.cancel(true);
+			throw e;
+		}
+		if (failure.get() != null)
+			throw new IllegalStateException("Shortest path worker failed", failure.get());
+	}
+
+	/**
+	 * Solve from one source into s and pack the result
+	 */
+	private Result solve(int src, SearchState s, boolean keepTrees) {
+		Algorithm a = shortestPath.solve(g, src, s);
+		if (a == null)
+			return new Result(src, null, 0, 0, null, null);
+		long sum = 0;
+		int reached = 0;
+		for (int i = 0; i < s.numTouched(); i++) {
+			int u = s.touched(i);
+			if (s.distance(u) != SearchState.INF)
+				reached++;
+			if (s.parent(u) != 0)
+				sum += s.distance(u);
+		}
+		int[] distance = null, parent = null;
+		if (keepTrees) {
+			distance = new int[g.numNodes + 1];
+			parent = new int[g.numNodes + 1];
+			for (int u = 1; u <= g.numNodes; u++) {
+				distance[u] = s.distance(u);
+				parent[u] = s.parent(u);
+			}
+		}
+		return new Result(src, a, reached, sum, distance, parent);
+	}
+
+	/**
+	 * Stop the thread pool, if this object created it
+	 */
+	void shutdown() {
+		if (ownPool)
+			pool.shutdown();
+	}
+}
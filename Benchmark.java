@@ -0,0 +1,226 @@
+/**
+ * The benchmarks of the shortest path methods. JMH runs them: the @Benchmark
+ * classes are in src/jmh/java/shortestpaths/jmh, one per benchmark, and get
+ * the code they time from task(). JMH does not take benchmarks in the default
+ * package, and a named package cannot import this one, so they call task()
+ * by reflection, once per trial.
+ *
+ * Benchmarks: BFS, DAG, dijkstraShortestPath, bellmanFord, goldbergRadzik,
+ * costScaling (both on the CSR form of the graph), findShortestPaths
+ * (solve and count the shortest paths), readGraph (Graph.readGraph of the
+ * graph as text), BinaryHeap and IndexedHeap (n inserts, n/2 decreaseKeys for
+ * the IndexedHeap, n deleteMins). The graphs come from GraphGenerator with a
+ * fixed seed, with n vertices and about n * degree arcs, in the shapes
+ * uniform, positive, dag and negative, or any other GraphGenerator.Shape in
+ * lower case. Every benchmark runs on the shapes its method applies to; the
+ * heaps do not use a graph.
+ *
+ * Usage: gradle jmh                      (all benchmarks, JMH's own report)
+ *        gradle benchmarkReport --args="-bench BFS -sizes 10000 -o results.csv"
+ */
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+public class Benchmark {
+	static final String NO_SHAPE = "-";
+	static final long SEED = 42;
+	static final List<String> NON_NEGATIVE = Arrays.asList("uniform", "positive", "grid", "power_law");
+	static final Predicate<String> ANY_SHAPE = shape -> !shape.equals(NO_SHAPE);
+
+	/**
+	 * A benchmark: the shapes it runs on, and how to set up the code it times
+	 */
+	static class Bench {
+		final String name;
+		final Predicate<String> shapes;
+		final Setup setup;
+
+		Bench(String name, Predicate<String> shapes, Setup setup) {
+			this.name = name;
+			this.shapes = shapes;
+			this.setup = setup;
+		}
+	}
+
+	interface Setup {
+		LongSupplier create(String shape, int n, int degree);
+	}
+
+	static final List<Bench> BENCHES = Arrays.asList(
+			new Bench("BFS", "uniform"::equals, (shape, n, degree) -> {
+				Graph g = graph(shape, n, degree);
+				SearchState s = new SearchState(n);
+				Vertex src = g.verts.get(1);
+				return () -> {
+					shortestPath.BFS(g, src, s);
+					return s.distance(n);
+				};
+			}),
+			new Bench("DAG", "dag"::equals, (shape, n, degree) -> {
+				Graph g = graph(shape, n, degree);
+				SearchState s = new SearchState(n);
+				Vertex src = g.verts.get(1);
+				int[] order = shortestPath.topologicalOrder(g, src, s, false, null);
+				return () -> {
+					shortestPath.DAG(g, src, s, order);
+					return s.distance(n);
+				};
+			}),
+			new Bench("dijkstraShortestPath", shape -> NON_NEGATIVE.contains(shape),
+					(shape, n, degree) -> {
+						Graph g = graph(shape, n, degree);
+						SearchState s = new SearchState(n);
+						Vertex src = g.verts.get(1);
+						return () -> {
+							shortestPath.dijkstraShortestPath(g, src, s);
+							return s.distance(n);
+						};
+					}),
+			new Bench("bellmanFord", ANY_SHAPE, (shape, n, degree) -> {
+				Graph g = graph(shape, n, degree);
+				SearchState s = new SearchState(n);
+				Vertex src = g.verts.get(1);
+				return () -> {
+					shortestPath.bellmanFord(g, src, s);
+					return s.distance(n);
+				};
+			}),
+			new Bench("goldbergRadzik", ANY_SHAPE, (shape, n, degree) -> {
+				CSRGraph g = CSRGraph.fromGraph(graph(shape, n, degree));
+				SearchState s = new SearchState(n);
+				return () -> {
+					GoldbergRadzik.goldbergRadzik(g, 1, s);
+					return s.distance(n);
+				};
+			}),
+			new Bench("costScaling", ANY_SHAPE, (shape, n, degree) -> {
+				CSRGraph g = CSRGraph.fromGraph(graph(shape, n, degree));
+				SearchState s = new SearchState(n);
+				return () -> {
+					GoldbergRadzik.costScaling(g, 1, s);
+					return s.distance(n);
+				};
+			}),
+			new Bench("findShortestPaths", ANY_SHAPE, (shape, n, degree) -> {
+				Graph g = graph(shape, n, degree);
+				SearchState s = new SearchState(n);
+				Vertex src = g.verts.get(1);
+				return () -> {
+					shortestPath.solve(g, src, s);
+					return shortestPath.countShortestPaths(g, src, s, null);
+				};
+			}),
+			new Bench("readGraph", ANY_SHAPE, (shape, n, degree) -> {
+				String text = text(shape, n, degree);
+				return () -> Graph.readGraph(new Scanner(text), true).numNodes;
+			}),
+			new Bench("BinaryHeap", NO_SHAPE::equals, (shape, n, degree) -> {
+				Integer[] keys = new Integer[n];
+				Random r = new Random(SEED);
+				for (int i = 0; i < n; i++)
+					keys[i] = r.nextInt(n);
+				return () -> {
+					BinaryHeap<Integer> h = new BinaryHeap<>(n, Integer::compare);
+					for (Integer k : keys)
+						h.insert(k);
+					long sum = 0;
+					while (!h.isEmpty())
+						sum += h.deleteMin();
+					return sum;
+				};
+			}),
+			new Bench("IndexedHeap", NO_SHAPE::equals, (shape, n, degree) -> {
+				Vertex[] items = new Vertex[n];
+				int[] keys = new int[n];
+				Random r = new Random(SEED);
+				for (int i = 0; i < n; i++) {
+					items[i] = new Vertex(i + 1);
+					keys[i] = r.nextInt(n);
+				}
+				return () -> {
+					IndexedHeap<Vertex> h = new IndexedHeap<>(n, items[0]);
+					for (int i = 0; i < n; i++) {
+						items[i].distance = keys[i];
+						h.insert(items[i]);
+					}
+					for (int i = 0; i < n; i += 2) {
+						items[i].distance -= keys[i] / 2;
+						h.decreaseKey(items[i]);
+					}
+					long sum = 0;
+					while (!h.isEmpty())
+						sum += h.deleteMin().distance;
+					return sum;
+				};
+			}));
+
+	static GraphGenerator generator(String shape, int n, int degree) {
+		return new GraphGenerator(GraphGenerator.Shape.valueOf(shape.toUpperCase()), n, (long) n * degree, SEED);
+	}
+
+	/**
+	 * The random graph as a Graph, as Graph.readGraph would build it
+	 */
+	static Graph graph(String shape, int n, int degree) {
+		return generator(shape, n, degree).toGraph();
+	}
+
+	/**
+	 * The random graph in the input format of Graph.readGraph
+	 */
+	static String text(String shape, int n, int degree) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			generator(shape, n, degree).writeText(Channels.newChannel(out));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Set up one benchmark
+	 *
+	 * @param name:
+	 *            String - benchmark
+	 * @param shape:
+	 *            String - graph shape, "-" for the heaps
+	 * @param n:
+	 *            int - vertices, or items for the heaps
+	 * @param degree:
+	 *            int - arcs per vertex
+	 * @return: LongSupplier - one call of the timed code, returning a value
+	 *          that depends on all its work
+	 */
+	public static LongSupplier task(String name, String shape, int n, int degree) {
+		if (!runsOn(name, shape))
+			throw new IllegalArgumentException(name + " does not run on shape " + shape);
+		return bench(name).setup.create(shape, n, degree);
+	}
+
+	/**
+	 * @return: boolean - true if benchmark name runs on the shape
+	 */
+	public static boolean runsOn(String name, String shape) {
+		return bench(name).shapes.test(shape);
+	}
+
+	static Bench bench(String name) {
+		for (Bench b : BENCHES)
+			if (b.name.equals(name))
+				return b;
+		throw new IllegalArgumentException("Unknown benchmark: " + name);
+	}
+
+	/**
+	 * @return: long - number of arcs of the benchmark graph, 0 for "-"
+	 */
+	public static long edges(String shape, int n, int degree) {
+		return shape.equals(NO_SHAPE) ? 0 : generator(shape, n, degree).countArcs();
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ * Binary on-disk format for a CSRGraph, so that a graph is parsed from text
+ * once and then opened by memory-mapping the file.
+ *
+ * Layout (all ints little-endian):
+ *   header  - magic "CSRG", version, flags, n, m, 3 reserved ints (32 bytes)
+ *   off     - n+2 ints, the forward offsets
+ *   to, wt  - m ints each, the forward arcs
+ *   roff    - n+2 ints, the reverse offsets
+ *   from, rwt - m ints each, the reverse arcs
+ * The flags are the precomputed directed, nonNegative, uniformW and acyclic
+ * properties of the graph.
+ *
+ * Usage: java BinaryGraph input.txt output.bin [undirected]
+ */
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+public class BinaryGraph {
+	static final int MAGIC = 0x47525343; // "CSRG" read as a little-endian int
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+	static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	static final int DIRECTED = 1, NON_NEGATIVE = 2, UNIFORM_W = 4, ACYCLIC = 8;
+
+	/**
+	 * Method to write a graph in the binary format
+	 *
+	 * @param g
+	 *            : CSRGraph
+	 * @param file
+	 *            : Path - created or overwritten
+	 */
+	static void write(CSRGraph g, Path file) throws IOException {
+		int n = g.numNodes, m = g.numEdges;
+		int flags = (g.directed ? DIRECTED : 0) | (g.nonNegative ? NON_NEGATIVE : 0)
+				| (g.uniformW ? UNIFORM_W : 0) | (g.isAcyclic() ? ACYCLIC : 0);
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16).order(ORDER);
+			buf.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(n).putInt(m);
+			buf.putInt(0).putInt(0).putInt(0);
+
+			for (int u = 0; u <= n; u++)
+				put(ch, buf, g.begin(u));
+			put(ch, buf, g.end(n));
+			for (int e = 0; e < m; e++)
+				put(ch, buf, g.target(e));
+			for (int e = 0; e < m; e++)
+				put(ch, buf, g.weight(e));
+			for (int v = 0; v <= n; v++)
+				put(ch, buf, g.rbegin(v));
+			put(ch, buf, g.rend(n));
+			for (int r = 0; r < m; r++)
+				put(ch, buf, g.rsource(r));
+			for (int r = 0; r < m; r++)
+				put(ch, buf, g.rweight(r));
+			flush(ch, buf);
+		}
+	}
+
+	static void put(FileChannel ch, ByteBuffer buf, int x) throws IOException {
+		if (buf.remaining() < 4)
+			flush(ch, buf);
+		buf.putInt(x);
+	}
+
+	static void flush(FileChannel ch, ByteBuffer buf) throws IOException {
+		buf.flip();
+		while (buf.hasRemaining())
+			ch.write(buf);
+		buf.clear();
+	}
+
+	/**
+	 * Method to open a binary graph file. The arcs are memory-mapped, not
+	 * read, so this takes about the same time for any size of graph.
+	 *
+	 * @param file
+	 *            : Path
+	 * @return CSRGraph - reads its arcs from the mapped file
+	 * @throws IOException
+	 *             if the file is not a binary graph of a known version
+	 */
+	static CSRGraph open(Path file) throws IOException {
+		long start = Metrics.start();
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ORDER);
+			while (header.hasRemaining())
+				if (ch.read(header) < 0)
+					throw new EOFException("Binary graph header is cut short: " + file);
+			header.flip();
+			if (header.getInt() != MAGIC)
+				throw new IOException("Not a binary graph file: " + file);
+			int version = header.getInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported binary graph version " + version + ": " + file);
+			int flags = header.getInt();
+			int n = header.getInt();
+			int m = header.getInt();
+
+			// the mappings stay valid after the channel is closed
+			CSRGraph g = new MappedCSRGraph(ch, n, m, (flags & DIRECTED) != 0, HEADER_SIZE);
+			g.nonNegative = (flags & NON_NEGATIVE) != 0;
+			g.uniformW = (flags & UNIFORM_W) != 0;
+			g.setAcyclic((flags & ACYCLIC) != 0);
+			Metrics.record(Metrics.Phase.LOAD, start);
+			return g;
+		}
+	}
+
+	/**
+	 * Converter from the text format of Graph.readGraph
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: java BinaryGraph input.txt output.bin [undirected]");
+			return;
+		}
+		boolean directed = !(args.length > 2 && args[2].equals("undirected"));
+		GraphReader reader = GraphReader.open(Paths.get(args[0]));
+		CSRGraph g = reader.readCSR(directed);
+		System.out.println(reader);
+
+		Timer t = new Timer();
+		write(g, Paths.get(args[1]));
+		t.end();
+		System.out.println("Write: " + t.elapsedTime + " msec.");
+	}
+}
@@ -53,6 +53,8 @@ public class BinaryHeap<T> implements PQ<T> {
 	}
 
 	public T remove() { /* to be implemented */
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.HEAP_REMOVES);
 		T min;
 		min = pq[1];
 		assign(1, pq[size--]);// pq[1] = pq[size--];
@@ -68,6 +70,8 @@ public class BinaryHeap<T> implements PQ<T> {
 	void percolateUp(int i) {
 		assign(0, pq[i]); // pq[0] = pq[i];
 		while (c.compare(pq[i / 2], pq[0]) > 0) {
+			if (Metrics.ENABLED)
+				Metrics.count(Metrics.Counter.PERCOLATE_UP_STEPS);
 			assign(i, pq[i / 2]); // pq[i] = pq[i / 2];
 			i = i / 2;
 		}
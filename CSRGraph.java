@@ -0,0 +1,292 @@
+/**
+ * Class to represent a graph in compressed-sparse-row (CSR) form. The arcs of
+ * vertex u are stored in positions [begin(u), end(u)) of parallel target and
+ * weight arrays, and a second (reverse) CSR holds the incoming arcs of every
+ * vertex in place of Vertex.revAdj. Vertices are numbered 1..numNodes, like in
+ * Graph.
+ *
+ */
+
+import java.util.*;
+
+class CSRGraph {
+	public int numNodes; // number of vertices in the graph
+	public int numEdges; // number of arcs stored in the forward arrays
+	public boolean directed;
+	public boolean nonNegative;
+	public boolean uniformW;
+	private byte acyclic = -1; // -1 until isAcyclic() has worked it out
+	Planner.Properties properties; // worked out by Planner on the first plan
+
+	int[] off; // off[u]..off[u+1]-1 are the arcs leaving u
+	int[] to; // target of each arc
+	int[] wt; // weight of each arc
+	int[] roff; // roff[v]..roff[v+1]-1 are the arcs entering v
+	int[] from; // source of each reverse arc
+	int[] rwt; // weight of each reverse arc
+
+	/**
+	 * Constructor for CSRGraph. Use build() or fromGraph() to create one.
+	 */
+	CSRGraph(int n, int m, boolean directed) {
+		numNodes = n;
+		numEdges = m;
+		this.directed = directed;
+		nonNegative = true;
+		uniformW = true;
+	}
+
+	/**
+	 * Method to build a CSR graph from an edge list
+	 *
+	 * @param n
+	 *            : int - number of vertices
+	 * @param m
+	 *            : int - number of edges in the lists
+	 * @param us
+	 *            : int[] - one end of each edge
+	 * @param vs
+	 *            : int[] - other end of each edge
+	 * @param ws
+	 *            : int[] - weight of each edge
+	 * @param directed
+	 *            : boolean - false if every edge is to be stored in both
+	 *            directions
+	 * @return CSRGraph
+	 */
+	static CSRGraph build(int n, int m, int[] us, int[] vs, int[] ws, boolean directed) {
+		int arcs = directed ? m : 2 * m;
+		CSRGraph g = new CSRGraph(n, arcs, directed);
+		g.off = new int[n + 2];
+		g.to = new int[arcs];
+		g.wt = new int[arcs];
+		g.roff = new int[n + 2];
+		g.from = new int[arcs];
+		g.rwt = new int[arcs];
+
+		// count the out and in degree of every vertex
+		for (int i = 0; i < m; i++) {
+			g.off[us[i] + 1]++;
+			g.roff[vs[i] + 1]++;
+			if (!directed) {
+				g.off[vs[i] + 1]++;
+				g.roff[us[i] + 1]++;
+			}
+			if (ws[i] < 0)
+				g.nonNegative = false;
+			if (ws[i] != ws[0])
+				g.uniformW = false;
+		}
+		for (int u = 1; u <= n + 1; u++) {
+			g.off[u] += g.off[u - 1];
+			g.roff[u] += g.roff[u - 1];
+		}
+
+		// place the arcs, using the next free slot of each vertex
+		int[] next = Arrays.copyOf(g.off, n + 1);
+		int[] rnext = Arrays.copyOf(g.roff, n + 1);
+		for (int i = 0; i < m; i++) {
+			g.place(us[i], vs[i], ws[i], next, rnext);
+			if (!directed)
+				g.place(vs[i], us[i], ws[i], next, rnext);
+		}
+		return g;
+	}
+
+	/**
+	 * Store the arc (u,v) in the first free slot of the forward and reverse
+	 * arrays
+	 */
+	private void place(int u, int v, int w, int[] next, int[] rnext) {
+		int e = next[u]++;
+		to[e] = v;
+		wt[e] = w;
+		int r = rnext[v]++;
+		from[r] = u;
+		rwt[r] = w;
+	}
+
+	/**
+	 * Method to convert an object graph into CSR form. The arcs of each vertex
+	 * keep the order of its Adj list.
+	 *
+	 * @param g
+	 *            : Graph
+	 * @return CSRGraph
+	 */
+	static CSRGraph fromGraph(Graph g) {
+		int m = 0;
+		boolean directed = false;
+		for (Vertex u : g) {
+			m += u.Adj.size();
+			if (!u.revAdj.isEmpty())
+				directed = true;
+		}
+		int[] us = new int[m], vs = new int[m], ws = new int[m];
+		int i = 0;
+		for (Vertex u : g) {
+			for (Edge e : u.Adj) {
+				us[i] = u.name;
+				vs[i] = e.otherEnd(u).name;
+				ws[i] = e.Weight;
+				i++;
+			}
+		}
+		// every arc of Adj is taken on its own; an undirected edge already
+		// shows up in the lists of both its ends
+		CSRGraph csr = build(g.numNodes, m, us, vs, ws, true);
+		csr.directed = directed;
+		return csr;
+	}
+
+	/**
+	 * Method to get an object graph view of this graph, for the callers that
+	 * work on Vertex and Edge objects
+	 *
+	 * @return Graph
+	 */
+	Graph toGraph() {
+		Graph g = new Graph(numNodes);
+		g.nonNegative = nonNegative;
+		g.uniformW = uniformW;
+		for (int u = 1; u <= numNodes; u++) {
+			for (int e = begin(u); e < end(u); e++) {
+				int v = target(e);
+				if (directed)
+					g.addDirectedEdge(u, v, weight(e));
+				else if (u <= v) // both arcs of an undirected edge are stored
+					g.addEdge(u, v, weight(e));
+			}
+		}
+		return g;
+	}
+
+	/**
+	 * Method to get the graph with every arc turned around. The forward and
+	 * reverse arrays trade places, so nothing is copied.
+	 *
+	 * @return CSRGraph - arc (u,v) of this graph is arc (v,u) of the result
+	 */
+	CSRGraph reverse() {
+		CSRGraph r = reversed();
+		r.nonNegative = nonNegative;
+		r.uniformW = uniformW;
+		r.acyclic = acyclic;
+		return r;
+	}
+
+	/**
+	 * The reversed arcs, without the flags
+	 */
+	CSRGraph reversed() {
+		CSRGraph r = new CSRGraph(numNodes, numEdges, directed);
+		r.off = roff;
+		r.to = from;
+		r.wt = rwt;
+		r.roff = off;
+		r.from = to;
+		r.rwt = wt;
+		return r;
+	}
+
+	/**
+	 * Method to check if the whole graph has no cycle, using Kahn's algorithm.
+	 * The answer is kept after the first call.
+	 *
+	 * @return boolean - true if the graph is acyclic
+	 */
+	boolean isAcyclic() {
+		if (acyclic < 0) {
+			int[] inDegree = new int[numNodes + 1];
+			int[] queue = new int[numNodes];
+			int head = 0, tail = 0;
+			for (int v = 1; v <= numNodes; v++) {
+				inDegree[v] = rend(v) - rbegin(v);
+				if (inDegree[v] == 0)
+					queue[tail++] = v;
+			}
+			while (head < tail) {
+				int u = queue[head++];
+				for (int e = begin(u); e < end(u); e++)
+					if (--inDegree[target(e)] == 0)
+						queue[tail++] = target(e);
+			}
+			acyclic = (byte) (tail == numNodes ? 1 : 0);
+		}
+		return acyclic == 1;
+	}
+
+	/**
+	 * Set the acyclic flag when it is already known, e.g. from a file header
+	 */
+	void setAcyclic(boolean b) {
+		acyclic = (byte) (b ? 1 : 0);
+	}
+
+	/** index of the first arc leaving u */
+	int begin(int u) {
+		return off[u];
+	}
+
+	/** index after the last arc leaving u */
+	int end(int u) {
+		return off[u + 1];
+	}
+
+	/** the vertex the arc e points to */
+	int target(int e) {
+		return to[e];
+	}
+
+	/** weight of the arc e */
+	int weight(int e) {
+		return wt[e];
+	}
+
+	/** index of the first arc entering v */
+	int rbegin(int v) {
+		return roff[v];
+	}
+
+	/** index after the last arc entering v */
+	int rend(int v) {
+		return roff[v + 1];
+	}
+
+	/** the vertex the reverse arc r comes from */
+	int rsource(int r) {
+		return from[r];
+	}
+
+	/** weight of the reverse arc r */
+	int rweight(int r) {
+		return rwt[r];
+	}
+
+	/**
+	 * Method to find the vertex an arc leaves from. It is a binary search over
+	 * the offsets, so it is meant for printing and not for the solvers.
+	 *
+	 * @param e
+	 *            : int - index of the arc
+	 * @return int - the source vertex of e
+	 */
+	int arcSource(int e) {
+		int lo = 1, hi = numNodes;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (begin(mid) <= e)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		return lo;
+	}
+
+	/**
+	 * Method to represent the arc e in the form (x,y)
+	 */
+	String arcString(int e) {
+		return "(" + arcSource(e) + "," + target(e) + ")";
+	}
+}
@@ -0,0 +1,465 @@
+/**
+ * Contraction Hierarchies for point-to-point queries on a static Graph with
+ * only non-negative edges.
+ *
+ * Preprocessing contracts the vertices one at a time, least important first.
+ * Contracting v removes it from the graph; for every pair of arcs (u,v),
+ * (v,x) a local Dijkstra from u that avoids v (the witness search) checks for
+ * another path to x that is no longer, and if there is none a Shortcut (u,x)
+ * takes the place of the path through v. The importance of a vertex is its
+ * edge difference (shortcuts it would add minus arcs it would remove) plus the
+ * number of its neighbours already contracted. Priorities are kept in an
+ * IndexedHeap and checked again when a vertex comes out on top.
+ *
+ * A query runs Dijkstra from the source and, over the reversed arcs, from the
+ * target, each following only arcs to vertices contracted later. The two
+ * searches meet at the highest vertex of a shortest path. Shortcuts on the
+ * path found are unpacked into the original Edges of the graph.
+ *
+ * The query searches live in SearchStates that are reused, so queries on one
+ * ContractionHierarchy are for one thread at a time.
+ *
+ * Usage: ContractionHierarchy ch = new ContractionHierarchy(g);
+ *        int d = ch.distance(s, t);
+ *        List<Edge> path = ch.path(s, t);
+ */
+
+import java.util.*;
+
+public class ContractionHierarchy {
+	static final int WITNESS_SETTLE_LIMIT = 500; // vertices one witness search may settle
+
+	private final Graph g;
+	private final boolean directed;
+	private final int[] rank; // 1 for the vertex contracted first
+	private int numShortcuts;
+
+	// up: arcs (u,x) with rank[x] > rank[u], stored at u
+	private int[] upOff, upTo;
+	private Edge[] upEdge;
+	// down: arcs (x,v) with rank[x] > rank[v], stored at v
+	private int[] downOff, downFrom;
+	private Edge[] downEdge;
+
+	private final SearchState fwd, bwd;
+	private long mu; // length of the best path found by the last query
+	private int meet; // the vertex where that path turns down, 0 if none
+	private int settled; // vertices settled by the last query
+
+	// preprocessing only
+	private List<Edge>[] out, in; // the same lists for an undirected graph
+	private boolean[] contracted;
+
+	/**
+	 * Vertex of the contraction queue, keyed by importance
+	 */
+	static class Node implements Index, Comparator<Node> {
+		int name;
+		int priority;
+		int index;
+
+		Node(int name, int priority) {
+			this.name = name;
+			this.priority = priority;
+		}
+
+		public void putIndex(int index) {
+			this.index = index;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public int compare(Node a, Node b) {
+			int c = Integer.compare(a.priority, b.priority);
+			return c != 0 ? c : Integer.compare(a.name, b.name);
+		}
+	}
+
+	/**
+	 * Constructor for ContractionHierarchy. Does the preprocessing; g must
+	 * not be changed afterwards.
+	 *
+	 * @param g
+	 *            : Graph - with only non-negative edges
+	 */
+	ContractionHierarchy(Graph g) {
+		int n = g.numNodes;
+		this.g = g;
+		boolean dir = false;
+		for (Vertex u : g) {
+			for (Edge e : u.Adj)
+				if (e.Weight < 0)
+					throw new IllegalArgumentException("Contraction Hierarchies need non-negative edge weights");
+			if (!u.revAdj.isEmpty())
+				dir = true;
+		}
+		directed = dir;
+		rank = new int[n + 1];
+		fwd = new SearchState(n);
+		bwd = new SearchState(n);
+
+		out = edgeLists(n + 1);
+		in = directed ? edgeLists(n + 1) : out;
+		for (Vertex u : g) {
+			out[u.name] = new ArrayList<>(u.Adj);
+			if (directed)
+				in[u.name] = new ArrayList<>(u.revAdj);
+		}
+		contracted = new boolean[n + 1];
+		contract();
+		buildSearchGraph();
+		out = in = null;
+		contracted = null;
+	}
+
+	/** an array of n edge lists; Java cannot create a generic array */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static List<Edge>[] edgeLists(int n) {
+		return new List[n];
+	}
+
+	/**
+	 * Contract all vertices in order of importance
+	 */
+	private void contract() {
+		int n = g.numNodes;
+		SearchState ws = new SearchState(n);
+		int[] deleted = new int[n + 1]; // contracted neighbours
+		int[] mark = new int[n + 1];
+		Node[] nodes = new Node[n + 1];
+		for (int v = 1; v <= n; v++)
+			nodes[v] = new Node(v, importance(v, ws, deleted));
+		IndexedHeap<Node> heap = new IndexedHeap<>(nodes.clone(), new Node(0, 0));
+
+		int r = 0;
+		while (!heap.isEmpty()) {
+			Node x = heap.remove();
+			// the priority may be out of date; put x back if it is no longer
+			// the least important
+			int p = importance(x.name, ws, deleted);
+			if (!heap.isEmpty() && p > heap.min().priority) {
+				x.priority = p;
+				heap.add(x);
+				continue;
+			}
+			int v = x.name;
+			shortcuts(v, ws, false);
+			contracted[v] = true;
+			rank[v] = ++r;
+			mark[v] = r;
+			Vertex vv = g.verts.get(v);
+			for (List<Edge> list : directed ? List.of(out[v], in[v]) : List.of(out[v])) {
+				for (Edge e : list) {
+					int y = e.otherEnd(vv).name;
+					if (contracted[y] || mark[y] == r)
+						continue;
+					mark[y] = r;
+					deleted[y]++;
+					nodes[y].priority++;
+					heap.percolateDown(nodes[y].getIndex());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Edge difference plus contracted neighbours of v
+	 */
+	private int importance(int v, SearchState ws, int[] deleted) {
+		Vertex vv = g.verts.get(v);
+		int removed = 0;
+		for (List<Edge> list : directed ? List.of(out[v], in[v]) : List.of(out[v]))
+			for (Edge e : list)
+				if (!contracted[e.otherEnd(vv).name])
+					removed++;
+		return shortcuts(v, ws, true) - removed + deleted[v];
+	}
+
+	/**
+	 * Witness searches for all pairs of arcs through v
+	 *
+	 * @param simulate:
+	 *            boolean - true to only count the shortcuts, false to add
+	 *            them
+	 * @return: int - number of shortcuts needed
+	 */
+	private int shortcuts(int v, SearchState ws, boolean simulate) {
+		Vertex vv = g.verts.get(v);
+		int count = 0;
+		for (int i = 0; i < in[v].size(); i++) {
+			Edge ein = in[v].get(i);
+			Vertex u = ein.otherEnd(vv);
+			if (contracted[u.name] || u == vv)
+				continue;
+			long maxW = -1;
+			for (Edge eout : out[v]) {
+				Vertex x = eout.otherEnd(vv);
+				if (needsPair(u, x, vv))
+					maxW = Math.max(maxW, (long) ein.Weight + eout.Weight);
+			}
+			if (maxW < 0)
+				continue;
+			witness(u.name, v, maxW, ws);
+			for (int j = 0; j < out[v].size(); j++) {
+				Edge eout = out[v].get(j);
+				Vertex x = eout.otherEnd(vv);
+				if (!needsPair(u, x, vv) || ws.distance(x.name) <= (long) ein.Weight + eout.Weight)
+					continue;
+				count++;
+				if (!simulate)
+					addShortcut(new Shortcut(u, x, vv, ein, eout));
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Whether the path u, v, x may need a shortcut. An undirected edge is
+	 * looked at from its smaller end only.
+	 */
+	private boolean needsPair(Vertex u, Vertex x, Vertex v) {
+		return x != v && x != u && !contracted[x.name] && (directed || u.name < x.name);
+	}
+
+	private void addShortcut(Shortcut sc) {
+		numShortcuts++;
+		out[sc.From.name].add(sc);
+		if (directed)
+			in[sc.To.name].add(sc);
+		else
+			out[sc.To.name].add(sc);
+	}
+
+	/**
+	 * Dijkstra from u over the vertices not contracted yet, leaving out v,
+	 * up to distance maxW or WITNESS_SETTLE_LIMIT settled vertices. The
+	 * distances in ws are upper bounds.
+	 */
+	private void witness(int u, int v, long maxW, SearchState ws) {
+		ws.initialize(u);
+		IntPQ heap = ws.heap(HeapType.BINARY);
+		heap.insert(u, 0);
+		int count = 0;
+		while (!heap.isEmpty()) {
+			int w = heap.deleteMin();
+			int dw = ws.distance(w);
+			if (dw > maxW || ++count > WITNESS_SETTLE_LIMIT)
+				break;
+			ws.setSeen(w, true);
+			Vertex ww = g.verts.get(w);
+			for (Edge e : out[w]) {
+				int y = e.otherEnd(ww).name;
+				if (y == v || contracted[y] || ws.seen(y) || ws.distance(y) <= dw + e.Weight)
+					continue;
+				ws.setDistance(y, dw + e.Weight);
+				if (heap.contains(y))
+					heap.decreaseKey(y, dw + e.Weight);
+				else
+					heap.insert(y, dw + e.Weight);
+			}
+		}
+	}
+
+	/**
+	 * Keep only the arcs that go up in rank, in arrays, for the queries
+	 */
+	private void buildSearchGraph() {
+		int n = g.numNodes;
+		upOff = new int[n + 2];
+		downOff = new int[n + 2];
+		for (int pass = 0; pass < 2; pass++) {
+			int up = 0, down = 0;
+			for (int u = 1; u <= n; u++) {
+				Vertex uu = g.verts.get(u);
+				upOff[u] = up;
+				downOff[u] = down;
+				for (Edge e : out[u]) {
+					int x = e.otherEnd(uu).name;
+					if (rank[x] > rank[u]) {
+						if (pass == 1) {
+							upTo[up] = x;
+							upEdge[up] = e;
+						}
+						up++;
+					}
+				}
+				for (Edge e : in[u]) {
+					int x = e.otherEnd(uu).name;
+					if (rank[x] > rank[u]) {
+						if (pass == 1) {
+							downFrom[down] = x;
+							downEdge[down] = e;
+						}
+						down++;
+					}
+				}
+			}
+			upOff[n + 1] = up;
+			downOff[n + 1] = down;
+			if (pass == 0) {
+				upTo = new int[up];
+				upEdge = new Edge[up];
+				downFrom = new int[down];
+				downEdge = new Edge[down];
+			}
+		}
+	}
+
+	/**
+	 * @return: int - number of shortcuts added by the preprocessing
+	 */
+	public int numShortcuts() {
+		return numShortcuts;
+	}
+
+	/**
+	 * @return: int - number of vertices settled by the last query, by both
+	 *          searches together
+	 */
+	public int settled() {
+		return settled;
+	}
+
+	/**
+	 * Length of the shortest path from s to t
+	 *
+	 * @param s:
+	 *            int - source
+	 * @param t:
+	 *            int - target
+	 * @return: int - the distance, SearchState.INF if t cannot be reached
+	 */
+	public int distance(int s, int t) {
+		search(s, t);
+		return meet == 0 ? SearchState.INF : (int) mu;
+	}
+
+	/**
+	 * A shortest path from s to t, as edges of the original graph
+	 *
+	 * @param s:
+	 *            int - source
+	 * @param t:
+	 *            int - target
+	 * @return: List<Edge> - the edges from s to t in order, null if t cannot
+	 *          be reached
+	 */
+	public List<Edge> path(int s, int t) {
+		search(s, t);
+		if (meet == 0)
+			return null;
+		List<Edge> path = new ArrayList<>();
+		// upward half, from s to meet
+		int n = 0;
+		for (int v = meet; v != 0; v = fwd.parent(v))
+			n++;
+		int[] up = new int[n];
+		for (int v = meet; v != 0; v = fwd.parent(v))
+			up[--n] = v;
+		for (int i = 0; i + 1 < up.length; i++)
+			unpack(arc(upOff, upTo, upEdge, up[i], up[i + 1]), g.verts.get(up[i]), path);
+		// downward half, from meet to t
+		for (int v = meet; bwd.parent(v) != 0; v = bwd.parent(v))
+			unpack(arc(downOff, downFrom, downEdge, bwd.parent(v), v), g.verts.get(v), path);
+		return path;
+	}
+
+	/**
+	 * The lightest arc of u's list that leads to x
+	 */
+	private static Edge arc(int[] off, int[] end, Edge[] edge, int u, int x) {
+		Edge best = null;
+		for (int k = off[u]; k < off[u + 1]; k++)
+			if (end[k] == x && (best == null || edge[k].Weight < best.Weight))
+				best = edge[k];
+		return best;
+	}
+
+	/**
+	 * Append the original edges of e, walked from the vertex from, to path
+	 */
+	private static void unpack(Edge e, Vertex from, List<Edge> path) {
+		ArrayDeque<Edge> edges = new ArrayDeque<>();
+		ArrayDeque<Vertex> froms = new ArrayDeque<>();
+		edges.push(e);
+		froms.push(from);
+		while (!edges.isEmpty()) {
+			e = edges.pop();
+			from = froms.pop();
+			if (!(e instanceof Shortcut)) {
+				path.add(e);
+				continue;
+			}
+			Shortcut sc = (Shortcut) e;
+			// push the part walked second first; an undirected shortcut may be
+			// walked from To to From
+			boolean forward = sc.From == from;
+			edges.push(forward ? sc.second : sc.first);
+			froms.push(sc.via);
+			edges.push(forward ? sc.first : sc.second);
+			froms.push(from);
+		}
+	}
+
+	private void search(int s, int t) {
+		fwd.initialize(s);
+		bwd.initialize(t);
+		IntPQ fheap = fwd.heap(HeapType.BINARY), bheap = bwd.heap(HeapType.BINARY);
+		fheap.insert(s, 0);
+		bheap.insert(t, 0);
+		mu = Long.MAX_VALUE;
+		meet = 0;
+		settled = 0;
+
+		boolean fdone = false, bdone = false, forward = true;
+		while (true) {
+			// a search is done when it cannot find anything shorter than mu
+			if (!fdone && (fheap.isEmpty() || fwd.distance(fheap.min()) >= mu))
+				fdone = true;
+			if (!bdone && (bheap.isEmpty() || bwd.distance(bheap.min()) >= mu))
+				bdone = true;
+			if (fdone && bdone)
+				break;
+			if (bdone || (!fdone && forward))
+				step(fheap, fwd, bwd, upOff, upTo, upEdge, downOff, downFrom, downEdge);
+			else
+				step(bheap, bwd, fwd, downOff, downFrom, downEdge, upOff, upTo, upEdge);
+			forward = !forward;
+		}
+	}
+
+	/**
+	 * Settle the next vertex of one search and relax its arcs up the
+	 * hierarchy. A vertex that the search reaches shorter through one of its
+	 * arcs from above (off2, end2, edge2) is not on a shortest path up and is
+	 * not expanded (stall-on-demand).
+	 */
+	private void step(IntPQ heap, SearchState s, SearchState other, int[] off, int[] end, Edge[] edge, int[] off2,
+			int[] end2, Edge[] edge2) {
+		int u = heap.deleteMin();
+		s.setSeen(u, true);
+		settled++;
+		int du = s.distance(u);
+		if (other.distance(u) != SearchState.INF && (long) du + other.distance(u) < mu) {
+			mu = (long) du + other.distance(u);
+			meet = u;
+		}
+		for (int k = off2[u]; k < off2[u + 1]; k++)
+			if ((long) s.distance(end2[k]) + edge2[k].Weight < du)
+				return;
+		for (int k = off[u]; k < off[u + 1]; k++) {
+			int x = end[k];
+			int dx = du + edge[k].Weight;
+			if (s.seen(x) || s.distance(x) <= dx)
+				continue;
+			s.setDistance(x, dx);
+			s.setParent(x, u);
+			if (heap.contains(x))
+				heap.decreaseKey(x, dx);
+			else
+				heap.insert(x, dx);
+		}
+	}
+}
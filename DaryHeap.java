@@ -0,0 +1,108 @@
+/**
+ * Indexed d-ary min-heap of vertex names with long keys. A wider heap is
+ * shallower than a binary one, so decreaseKey moves fewer levels and the
+ * children compared in percolateDown sit next to each other in memory.
+ *
+ */
+
+public class DaryHeap implements IntPQ {
+	final int d; // number of children of a node, a power of two
+	final int shift; // log2(d)
+	int[] pq; // pq[0..size) are vertex names
+	long[] key; // key of each vertex, indexed by name
+	int[] index; // position of each vertex in pq plus one, 0 if not in the heap
+	int size;
+
+	/** Create an empty priority queue for vertices 1..n */
+	DaryHeap(int n, int d) {
+		if (Integer.bitCount(d) != 1)
+			throw new IllegalArgumentException("d must be a power of two");
+		this.d = d;
+		shift = Integer.numberOfTrailingZeros(d);
+		pq = new int[n];
+		key = new long[n + 1];
+		index = new int[n + 1];
+		size = 0;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean contains(int v) {
+		return index[v] != 0;
+	}
+
+	public void clear() {
+		while (size > 0)
+			index[pq[--size]] = 0;
+	}
+
+	public void insert(int v, long k) {
+		key[v] = k;
+		percolateUp(size++, v);
+	}
+
+	public int deleteMin() {
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.HEAP_REMOVES);
+		int min = pq[0];
+		index[min] = 0;
+		if (--size > 0)
+			percolateDown(0, pq[size]);
+		return min;
+	}
+
+	public int min() {
+		return pq[0];
+	}
+
+	public void decreaseKey(int v, long k) {
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.HEAP_DECREASE_KEYS);
+		key[v] = k;
+		percolateUp(index[v] - 1, v);
+	}
+
+	/** put x at position i or above it */
+	void percolateUp(int i, int x) {
+		long k = key[x];
+		while (i > 0) {
+			int p = (i - 1) >> shift;
+			if (key[pq[p]] <= k)
+				break;
+			if (Metrics.ENABLED)
+				Metrics.count(Metrics.Counter.PERCOLATE_UP_STEPS);
+			assign(i, pq[p]);
+			i = p;
+		}
+		assign(i, x);
+	}
+
+	/** put x at position i or below it */
+	void percolateDown(int i, int x) {
+		long k = key[x];
+		int first;
+		while ((first = (i << shift) + 1) < size) {
+			int last = Math.min(first + d, size);
+			int child = first;
+			for (int c = first + 1; c < last; c++)
+				if (key[pq[c]] < key[pq[child]])
+					child = c;
+			if (key[pq[child]] >= k)
+				break;
+			assign(i, pq[child]);
+			i = child;
+		}
+		assign(i, x);
+	}
+
+	void assign(int i, int v) {
+		pq[i] = v;
+		index[v] = i + 1;
+	}
+}
@@ -0,0 +1,279 @@
+/**
+ * Delta-stepping single source shortest paths (Meyer and Sanders) for CSR
+ * graphs with only non-negative edges.
+ *
+ * Vertices are kept in buckets of width delta by tentative distance. The
+ * smallest non-empty bucket is emptied in rounds that relax the light arcs
+ * (weight <= delta) of all its vertices in parallel; after that the heavy arcs
+ * of every vertex removed from the bucket are relaxed in parallel, once.
+ * Relaxations are atomic min-updates on one long per vertex that packs the
+ * distance (high half) with the parent (low half), so a distance and its
+ * parent always change together.
+ *
+ * The Metrics hooks count for Planner.Engine.DELTA_STEPPING: arcs looked at
+ * and distances lowered, vertices put in and taken out of the buckets.
+ *
+ */
+
+import java.lang.invoke.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DeltaStepping {
+	private static final VarHandle AA = MethodHandles.arrayElementVarHandle(long[].class);
+	private static final long UNREACHED = (long) SearchState.INF << 32;
+	static final int THRESHOLD = 256; // frontier vertices relaxed by one task
+
+	private final CSRGraph g;
+	private final int delta;
+	private final ForkJoinPool pool;
+	private final long[] packed; // distance << 32 | parent, for every vertex
+	private final int[] reached; // vertices with a finite distance
+	private final AtomicInteger numReached = new AtomicInteger();
+
+	// vertices whose distance went down in the current step
+	private int[] improved = new int[16];
+	private final AtomicInteger numImproved = new AtomicInteger();
+
+	// cyclic array of buckets; bucket i lives in slot i % buckets.length
+	private final int[][] buckets;
+	private final int[] bucketSize;
+
+	private DeltaStepping(CSRGraph g, int delta, ForkJoinPool pool) {
+		this.g = g;
+		this.delta = delta;
+		this.pool = pool;
+		packed = new long[g.numNodes + 1];
+		Arrays.fill(packed, UNREACHED);
+		reached = new int[g.numNodes];
+		// a tentative distance is never more than maxW above the current
+		// bucket, so this many slots never wrap onto a live bucket
+		int maxW = 0;
+		for (int e = 0; e < g.numEdges; e++)
+			maxW = Math.max(maxW, g.weight(e));
+		int slots = maxW / delta + 2;
+		buckets = new int[slots][];
+		bucketSize = new int[slots];
+	}
+
+	/**
+	 * Delta-stepping from src on the common ForkJoinPool with the default
+	 * bucket width
+	 *
+	 * @param g:
+	 *            CSRGraph - with only non-negative edges
+	 * @param src:
+	 *            int - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 */
+	public static void deltaStepping(CSRGraph g, int src, SearchState s) {
+		deltaStepping(g, src, s, defaultDelta(g), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Delta-stepping from src
+	 *
+	 * @param g:
+	 *            CSRGraph - with only non-negative edges
+	 * @param src:
+	 *            int - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 * @param delta:
+	 *            int - bucket width; 1 behaves like Dial's algorithm, a
+	 *            large one like Bellman-Ford
+	 * @param pool:
+	 *            ForkJoinPool - runs the parallel relaxations
+	 */
+	public static void deltaStepping(CSRGraph g, int src, SearchState s, int delta, ForkJoinPool pool) {
+		if (!g.nonNegative)
+			throw new IllegalArgumentException("Delta-stepping needs non-negative edge weights");
+		if (delta < 1)
+			throw new IllegalArgumentException("delta must be positive");
+		new DeltaStepping(g, delta, pool).run(src, s);
+	}
+
+	/**
+	 * Bucket width of about the largest weight over the average degree, the
+	 * usual choice for random graphs
+	 */
+	static int defaultDelta(CSRGraph g) {
+		int maxW = 1;
+		for (int e = 0; e < g.numEdges; e++)
+			maxW = Math.max(maxW, g.weight(e));
+		double degree = Math.max(1.0, (double) g.numEdges / Math.max(1, g.numNodes));
+		return Math.max(1, (int) (maxW / degree));
+	}
+
+	private void run(int src, SearchState s) {
+		packed[src] = 0; // distance 0, no parent
+		reached[numReached.getAndIncrement()] = src;
+		add(0, src);
+		if (Metrics.ENABLED)
+			Metrics.add(Planner.Engine.DELTA_STEPPING, Metrics.Counter.QUEUE_PUSHES, 1);
+
+		int[] removed = new int[16]; // vertices taken out of the bucket
+		int numRemoved;
+		int[] mark = new int[g.numNodes + 1]; // round in which a vertex was taken
+		int round = 0;
+
+		for (int i = 0; (i = nextBucket(i)) >= 0; i++) {
+			numRemoved = 0;
+			int slot = i % buckets.length;
+			while (bucketSize[slot] > 0) {
+				// take the vertices that still belong to bucket i
+				round++;
+				int[] frontier = buckets[slot];
+				int size = bucketSize[slot];
+				buckets[slot] = null;
+				bucketSize[slot] = 0;
+				int n = 0;
+				long arcs = 0;
+				for (int k = 0; k < size; k++) {
+					int v = frontier[k];
+					if (mark[v] != round && distance(v) / delta == i) {
+						mark[v] = round;
+						frontier[n++] = v;
+						arcs += g.end(v) - g.begin(v);
+						if (numRemoved == removed.length)
+							removed = Arrays.copyOf(removed, 2 * numRemoved);
+						removed[numRemoved++] = v;
+					}
+				}
+				if (Metrics.ENABLED)
+					Metrics.add(Planner.Engine.DELTA_STEPPING, Metrics.Counter.HEAP_REMOVES, n);
+				relaxAll(frontier, n, arcs, true);
+			}
+			// a vertex may be removed in several rounds; its heavy arcs only
+			// need one pass
+			round++;
+			int n = 0;
+			long arcs = 0;
+			for (int k = 0; k < numRemoved; k++) {
+				int v = removed[k];
+				if (mark[v] != round) {
+					mark[v] = round;
+					removed[n++] = v;
+					arcs += g.end(v) - g.begin(v);
+				}
+			}
+			relaxAll(removed, n, arcs, false);
+		}
+
+		s.initialize(src);
+		for (int k = 0; k < numReached.get(); k++) {
+			int v = reached[k];
+			s.setDistance(v, distance(v));
+			s.setParent(v, (int) packed[v]);
+		}
+	}
+
+	/**
+	 * The first non-empty bucket at or after i, -1 if there is none
+	 */
+	private int nextBucket(int i) {
+		for (int k = 0; k < buckets.length; k++, i++)
+			if (bucketSize[i % buckets.length] > 0)
+				return i;
+		return -1;
+	}
+
+	private void add(int i, int v) {
+		int slot = i % buckets.length;
+		if (buckets[slot] == null)
+			buckets[slot] = new int[16];
+		else if (bucketSize[slot] == buckets[slot].length)
+			buckets[slot] = Arrays.copyOf(buckets[slot], 2 * bucketSize[slot]);
+		buckets[slot][bucketSize[slot]++] = v;
+	}
+
+	private int distance(int v) {
+		return (int) ((long) AA.getVolatile(packed, v) >> 32);
+	}
+
+	/**
+	 * Relax the light or heavy arcs of frontier[0..n) in parallel, then put
+	 * every improved vertex in the bucket of its new distance
+	 */
+	private void relaxAll(int[] frontier, int n, long arcs, boolean light) {
+		if (n == 0)
+			return;
+		if (improved.length < arcs)
+			improved = new int[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(arcs, 2L * improved.length))];
+		numImproved.set(0);
+		pool.invoke(new RelaxTask(frontier, 0, n, light));
+		int m = numImproved.get();
+		for (int k = 0; k < m; k++) {
+			int v = improved[k];
+			add(distance(v) / delta, v);
+		}
+		if (Metrics.ENABLED)
+			Metrics.add(Planner.Engine.DELTA_STEPPING, Metrics.Counter.QUEUE_PUSHES, m);
+	}
+
+	/**
+	 * Relaxes the arcs of frontier[lo..hi), splitting the range until it is
+	 * small
+	 */
+	private class RelaxTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final int[] frontier;
+		final int lo, hi;
+		final boolean light;
+
+		RelaxTask(int[] frontier, int lo, int hi, boolean light) {
+			this.frontier = frontier;
+			this.lo = lo;
+			this.hi = hi;
+			this.light = light;
+		}
+
+		protected void compute() {
+			if (hi - lo > THRESHOLD) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new RelaxTask(frontier, lo, mid, light), new RelaxTask(frontier, mid, hi, light));
+				return;
+			}
+			long looked = 0, count = 0;
+			for (int k = lo; k < hi; k++) {
+				int u = frontier[k];
+				int du = distance(u);
+				for (int e = g.begin(u); e < g.end(u); e++) {
+					int w = g.weight(e);
+					if ((w <= delta) == light) {
+						looked++;
+						if (relax(u, g.target(e), du + w))
+							count++;
+					}
+				}
+			}
+			if (Metrics.ENABLED) {
+				Metrics.add(Planner.Engine.DELTA_STEPPING, Metrics.Counter.EDGE_RELAXATIONS, looked);
+				Metrics.add(Planner.Engine.DELTA_STEPPING, Metrics.Counter.RELAXATIONS, count);
+			}
+		}
+	}
+
+	/**
+	 * Atomic min-update of the distance of v to d, with u as its parent
+	 *
+	 * @return: true if the distance went down
+	 */
+	private boolean relax(int u, int v, int d) {
+		long cur = (long) AA.getVolatile(packed, v);
+		long next = (long) d << 32 | (u & 0xffffffffL);
+		while ((int) (cur >> 32) > d) {
+			if (AA.compareAndSet(packed, v, cur, next)) {
+				if (cur == UNREACHED)
+					reached[numReached.getAndIncrement()] = v;
+				improved[numImproved.getAndIncrement()] = v;
+				return true;
+			}
+			cur = (long) AA.getVolatile(packed, v);
+		}
+		return false;
+	}
+}
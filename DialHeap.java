@@ -0,0 +1,142 @@
+/**
+ * Dial's bucket queue of vertex names with non-negative long keys: one bucket
+ * per key, in a circular array. It is only valid when every key is at least
+ * the last deleted key and less than it plus the number of buckets, which is
+ * the case in Dijkstra's algorithm when the number of buckets is larger than
+ * the largest arc weight. The buckets are doubled when a key does not fit,
+ * so they end up just over the largest weight. Each bucket is a doubly linked
+ * list kept in arrays, as in RadixHeap.
+ *
+ * deleteMin walks the buckets from the last deleted key, so a search costs
+ * O(m + n + D), D being the largest distance. Meant for lazy Dijkstra on
+ * graphs with small integer weights.
+ *
+ */
+
+import java.util.Arrays;
+
+public class DialHeap implements IntPQ {
+	static final int MAX_BUCKETS = 1 << 24;
+
+	long[] key;
+	int[] bucket; // bucket of each vertex, -1 if not in the heap
+	int[] next, prev; // links of the bucket lists, 0 at the ends
+	int[] head = new int[16]; // first vertex of each bucket
+	long last; // key of the last deleted vertex
+	int size;
+
+	/** Create an empty priority queue for vertices 1..n */
+	DialHeap(int n) {
+		key = new long[n + 1];
+		bucket = new int[n + 1];
+		Arrays.fill(bucket, -1);
+		next = new int[n + 1];
+		prev = new int[n + 1];
+		last = 0;
+		size = 0;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean contains(int v) {
+		return bucket[v] >= 0;
+	}
+
+	public void clear() {
+		last = 0;
+		if (size == 0)
+			return; // the buckets are all empty already
+		for (int b = 0; b < head.length; b++) {
+			for (int v = head[b]; v != 0; v = next[v])
+				bucket[v] = -1;
+			head[b] = 0;
+		}
+		size = 0;
+	}
+
+	public void insert(int v, long k) {
+		fit(k);
+		key[v] = k;
+		push(v);
+		size++;
+	}
+
+	public int min() {
+		scan();
+		return head[(int) last & (head.length - 1)];
+	}
+
+	public int deleteMin() {
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.HEAP_REMOVES);
+		scan();
+		int min = head[(int) last & (head.length - 1)];
+		unlink(min);
+		size--;
+		return min;
+	}
+
+	public void decreaseKey(int v, long k) {
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.HEAP_DECREASE_KEYS);
+		fit(k);
+		unlink(v);
+		key[v] = k;
+		push(v);
+	}
+
+	/** move last up to the smallest key in the heap */
+	private void scan() {
+		int mask = head.length - 1;
+		while (head[(int) last & mask] == 0)
+			last++;
+	}
+
+	/** make room for key k, doubling the buckets if need be */
+	private void fit(long k) {
+		if (k < last)
+			throw new IllegalArgumentException("Dial heap keys must not go below the last deleted key");
+		if (k - last < head.length)
+			return;
+		if (k - last >= MAX_BUCKETS)
+			throw new IllegalArgumentException("Dial heap keys span more than " + MAX_BUCKETS + " buckets");
+		int[] old = head;
+		int buckets = old.length;
+		while (buckets <= k - last)
+			buckets *= 2;
+		head = new int[buckets];
+		for (int b = 0; b < old.length; b++) {
+			for (int v = old[b], w; v != 0; v = w) {
+				w = next[v];
+				push(v);
+			}
+		}
+	}
+
+	private void push(int v) {
+		int b = (int) key[v] & (head.length - 1);
+		bucket[v] = b;
+		prev[v] = 0;
+		next[v] = head[b];
+		if (head[b] != 0)
+			prev[head[b]] = v;
+		head[b] = v;
+	}
+
+	private void unlink(int v) {
+		int b = bucket[v];
+		if (prev[v] != 0)
+			next[prev[v]] = next[v];
+		else
+			head[b] = next[v];
+		if (next[v] != 0)
+			prev[next[v]] = prev[v];
+		bucket[v] = -1;
+	}
+}
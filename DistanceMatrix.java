@@ -0,0 +1,161 @@
+/**
+ * n x n matrix of distances, row u holding the distances from vertex u. The
+ * ints live either on the heap or in a memory-mapped file, so a matrix larger
+ * than the heap can still be filled row by row and read back.
+ *
+ * Either way the matrix is a list of IntBuffer chunks of whole rows, each
+ * under 2^28 ints like the sections of MappedCSRGraph. Different rows may be
+ * written by different threads at the same time.
+ *
+ * File layout (all ints little-endian):
+ *   header - magic "DMAT", version, n, 1 reserved int (16 bytes)
+ *   rows   - n rows of n ints, row u column v at (u-1) * n + (v-1)
+ *
+ */
+
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+public class DistanceMatrix {
+	static final int MAGIC = 0x54414d44; // "DMAT" read as a little-endian int
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+
+	public final int numNodes;
+	private final int rowsPerChunk;
+	private final IntBuffer[] chunks;
+	private final MappedByteBuffer[] mapped; // null on the heap
+
+	private DistanceMatrix(int n, IntBuffer[] chunks, int rowsPerChunk, MappedByteBuffer[] mapped) {
+		numNodes = n;
+		this.chunks = chunks;
+		this.rowsPerChunk = rowsPerChunk;
+		this.mapped = mapped;
+	}
+
+	private static int rowsPerChunk(int n) {
+		return Math.max(1, (1 << MappedCSRGraph.CHUNK_SHIFT) / Math.max(1, n));
+	}
+
+	/**
+	 * Method to create a matrix on the heap
+	 *
+	 * @param n
+	 *            : int - number of vertices
+	 * @return DistanceMatrix
+	 */
+	static DistanceMatrix onHeap(int n) {
+		int rows = rowsPerChunk(n);
+		IntBuffer[] chunks = new IntBuffer[(n + rows - 1) / rows];
+		for (int c = 0; c < chunks.length; c++)
+			chunks[c] = IntBuffer.allocate(Math.min(rows, n - c * rows) * n);
+		return new DistanceMatrix(n, chunks, rows, null);
+	}
+
+	/**
+	 * Method to create a matrix in a new memory-mapped file
+	 *
+	 * @param file
+	 *            : Path - created or overwritten
+	 * @param n
+	 *            : int - number of vertices
+	 * @return DistanceMatrix
+	 */
+	static DistanceMatrix create(Path file, int n) throws IOException {
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BinaryGraph.ORDER);
+			header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0).flip();
+			while (header.hasRemaining())
+				ch.write(header, header.position());
+			return map(ch, n, FileChannel.MapMode.READ_WRITE);
+		}
+	}
+
+	/**
+	 * Method to open a matrix file for reading
+	 *
+	 * @param file
+	 *            : Path
+	 * @return DistanceMatrix
+	 * @throws IOException
+	 *             if the file is not a distance matrix of a known version
+	 */
+	static DistanceMatrix open(Path file) throws IOException {
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BinaryGraph.ORDER);
+			while (header.hasRemaining())
+				if (ch.read(header) < 0)
+					throw new IOException("Distance matrix header is cut short: " + file);
+			header.flip();
+			if (header.getInt() != MAGIC)
+				throw new IOException("Not a distance matrix file: " + file);
+			int version = header.getInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported distance matrix version " + version + ": " + file);
+			return map(ch, header.getInt(), FileChannel.MapMode.READ_ONLY);
+		}
+	}
+
+	private static DistanceMatrix map(FileChannel ch, int n, FileChannel.MapMode mode) throws IOException {
+		int rows = rowsPerChunk(n);
+		IntBuffer[] chunks = new IntBuffer[(n + rows - 1) / rows];
+		MappedByteBuffer[] mapped = new MappedByteBuffer[chunks.length];
+		long position = HEADER_SIZE;
+		for (int c = 0; c < chunks.length; c++) {
+			long ints = (long) Math.min(rows, n - c * rows) * n;
+			mapped[c] = ch.map(mode, position, 4 * ints);
+			chunks[c] = mapped[c].order(BinaryGraph.ORDER).asIntBuffer();
+			position += 4 * ints;
+		}
+		// the mappings stay valid after the channel is closed
+		return new DistanceMatrix(n, chunks, rows, mapped);
+	}
+
+	/**
+	 * Distance from u to v
+	 */
+	public int get(int u, int v) {
+		int r = u - 1;
+		return chunks[r / rowsPerChunk].get((r % rowsPerChunk) * numNodes + v - 1);
+	}
+
+	/**
+	 * Method to store the distances from u
+	 *
+	 * @param u
+	 *            : int - row
+	 * @param row
+	 *            : int[] - row[v] is the distance from u to v, for v in 1..n
+	 */
+	public void putRow(int u, int[] row) {
+		int r = u - 1;
+		chunks[r / rowsPerChunk].put((r % rowsPerChunk) * numNodes, row, 1, numNodes);
+	}
+
+	/**
+	 * Method to read the distances from u
+	 *
+	 * @param u
+	 *            : int - row
+	 * @param row
+	 *            : int[] - receives row[v] for v in 1..n; at least n+1 long
+	 * @return int[] - row
+	 */
+	public int[] row(int u, int[] row) {
+		int r = u - 1;
+		chunks[r / rowsPerChunk].get((r % rowsPerChunk) * numNodes, row, 1, numNodes);
+		return row;
+	}
+
+	/**
+	 * Write a memory-mapped matrix through to its file
+	 */
+	public void force() {
+		if (mapped != null)
+			for (MappedByteBuffer m : mapped)
+				m.force();
+	}
+}
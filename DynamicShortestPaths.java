@@ -0,0 +1,232 @@
+/**
+ * Shortest path tree from one source of a Graph with only non-negative edges,
+ * kept up to date while edges are added and their weights change.
+ *
+ * Every change goes through this class, which changes the Graph and then
+ * repairs only the part of the tree it affects:
+ * - an edge that got shorter (or is new) can only lower the distances below
+ *   its tail; a Dijkstra started from the tail alone spreads the decrease.
+ * - a tree edge that got longer can only raise the distances of the subtree
+ *   below it. In the style of Ramalingam and Reps, the subtree is taken out,
+ *   each of its vertices gets the best distance it can reach through edges
+ *   from outside the subtree, and a Dijkstra over the subtree finishes them.
+ * An edge that got longer and is not in the tree changes nothing. So the
+ * work of a repair depends on the vertices whose distance changes and their
+ * edges, not on the size of the graph.
+ *
+ * Usage: DynamicShortestPaths d = new DynamicShortestPaths(g, src);
+ *        d.setWeight(e, 7);
+ *        int x = d.distance(v);
+ */
+
+import java.util.*;
+
+public class DynamicShortestPaths {
+	private final Graph g;
+	private final int undirectedEdges; // edges added with Graph.addEdge
+	private final int[] distance;
+	private final Edge[] parentEdge; // tree edge into each vertex, null if none
+	private final IntPQ heap;
+	private final int[] mark; // number of the repair a vertex was taken out in
+	private int repair;
+	private int[] subtree = new int[16];
+	private int affected; // vertices settled by the last repair
+
+	/**
+	 * Constructor for DynamicShortestPaths. Solves g from src.
+	 *
+	 * @param g
+	 *            : Graph - with only non-negative edges
+	 * @param src
+	 *            : Vertex - Source
+	 */
+	DynamicShortestPaths(Graph g, Vertex src) {
+		if (!g.nonNegative)
+			throw new IllegalArgumentException("Dynamic shortest paths need non-negative edge weights");
+		this.g = g;
+		// an arc is in one Adj and one revAdj list, an edge in two Adj lists
+		long adj = 0, rev = 0;
+		for (Vertex u : g) {
+			adj += u.Adj.size();
+			rev += u.revAdj.size();
+		}
+		undirectedEdges = (int) ((adj - rev) / 2);
+		distance = new int[g.numNodes + 1];
+		parentEdge = new Edge[g.numNodes + 1];
+		mark = new int[g.numNodes + 1];
+		heap = HeapType.BINARY.create(g.numNodes);
+		Arrays.fill(distance, SearchState.INF);
+		distance[src.name] = 0;
+		heap.insert(src.name, 0);
+		dijkstra();
+	}
+
+	/**
+	 * @return: int - distance of v from the source, SearchState.INF if it
+	 *          cannot be reached
+	 */
+	public int distance(int v) {
+		return distance[v];
+	}
+
+	/**
+	 * @return: Vertex - parent of v in the tree, null if it has none
+	 */
+	public Vertex parent(int v) {
+		return parentEdge[v] == null ? null : parentEdge[v].otherEnd(g.verts.get(v));
+	}
+
+	/**
+	 * @return: int - number of vertices settled by the last change
+	 */
+	public int affected() {
+		return affected;
+	}
+
+	/**
+	 * Add an arc to the graph and repair the tree
+	 *
+	 * @param a
+	 *            : int - the head of the arc
+	 * @param b
+	 *            : int - the tail of the arc
+	 * @param weight
+	 *            : int - the weight of the arc, non-negative
+	 */
+	void addDirectedEdge(int a, int b, int weight) {
+		if (weight < 0)
+			throw new IllegalArgumentException("Negative edge weight " + weight);
+		g.addDirectedEdge(a, b, weight);
+		List<Edge> adj = g.verts.get(a).Adj;
+		affected = 0;
+		decrease(adj.get(adj.size() - 1), g.verts.get(a));
+	}
+
+	/**
+	 * Change the weight of an edge of the graph and repair the tree
+	 *
+	 * @param e
+	 *            : Edge - an edge of the graph
+	 * @param weight
+	 *            : int - the new weight, non-negative
+	 */
+	void setWeight(Edge e, int weight) {
+		if (weight < 0)
+			throw new IllegalArgumentException("Negative edge weight " + weight);
+		int old = e.Weight;
+		g.setWeight(e, weight);
+		affected = 0;
+		if (weight < old) {
+			decrease(e, e.From);
+			if (!isArc(e))
+				decrease(e, e.To);
+		} else if (weight > old) {
+			if (parentEdge[e.To.name] == e)
+				increase(e.To);
+			else if (parentEdge[e.From.name] == e) // only an edge is used both ways
+				increase(e.From);
+		}
+	}
+
+	/**
+	 * @return: boolean - true if e was added as an arc, false if as an
+	 *          undirected edge. O(1) unless the graph has both
+	 */
+	private boolean isArc(Edge e) {
+		return undirectedEdges == 0 || e.To.revAdj.contains(e);
+	}
+
+	/**
+	 * Spread a shorter distance through e, walked from u
+	 */
+	private void decrease(Edge e, Vertex u) {
+		Vertex v = e.otherEnd(u);
+		if (distance[u.name] == SearchState.INF || (long) distance[u.name] + e.Weight >= distance[v.name])
+			return;
+		distance[v.name] = distance[u.name] + e.Weight;
+		parentEdge[v.name] = e;
+		heap.insert(v.name, distance[v.name]);
+		dijkstra();
+	}
+
+	/**
+	 * Recompute the subtree below v, whose tree edge got longer
+	 */
+	private void increase(Vertex v) {
+		repair++;
+		// collect the subtree by following the tree edges down
+		int n = 0;
+		subtree = grow(subtree, 1);
+		subtree[n++] = v.name;
+		mark[v.name] = repair;
+		for (int i = 0; i < n; i++) {
+			Vertex x = g.verts.get(subtree[i]);
+			for (Edge e : x.Adj) {
+				Vertex y = e.otherEnd(x);
+				if (parentEdge[y.name] == e && mark[y.name] != repair) {
+					subtree = grow(subtree, n + 1);
+					subtree[n++] = y.name;
+					mark[y.name] = repair;
+				}
+			}
+		}
+		// the best way into each subtree vertex from outside the subtree
+		for (int i = 0; i < n; i++) {
+			int x = subtree[i];
+			distance[x] = SearchState.INF;
+			parentEdge[x] = null;
+		}
+		for (int i = 0; i < n; i++) {
+			Vertex x = g.verts.get(subtree[i]);
+			for (Edge e : x.revAdj)
+				enter(x, e);
+			if (undirectedEdges > 0)
+				for (Edge e : x.Adj)
+					if (!isArc(e)) // else an arc out of x
+						enter(x, e);
+			if (distance[x.name] != SearchState.INF)
+				heap.insert(x.name, distance[x.name]);
+		}
+		dijkstra();
+	}
+
+	/**
+	 * Take e into x, from outside the subtree, if it is the best way so far
+	 */
+	private void enter(Vertex x, Edge e) {
+		Vertex y = e.otherEnd(x);
+		if (mark[y.name] == repair || distance[y.name] == SearchState.INF)
+			return;
+		if ((long) distance[y.name] + e.Weight < distance[x.name]) {
+			distance[x.name] = distance[y.name] + e.Weight;
+			parentEdge[x.name] = e;
+		}
+	}
+
+	private static int[] grow(int[] a, int size) {
+		return size <= a.length ? a : Arrays.copyOf(a, 2 * a.length);
+	}
+
+	/**
+	 * Dijkstra from the vertices in the heap, which must have their distances
+	 */
+	private void dijkstra() {
+		while (!heap.isEmpty()) {
+			int name = heap.deleteMin();
+			affected++;
+			Vertex u = g.verts.get(name);
+			for (Edge e : u.Adj) {
+				Vertex v = e.otherEnd(u);
+				long d = (long) distance[name] + e.Weight;
+				if (d >= distance[v.name])
+					continue;
+				distance[v.name] = (int) d;
+				parentEdge[v.name] = e;
+				if (heap.contains(v.name))
+					heap.decreaseKey(v.name, d);
+				else
+					heap.insert(v.name, d);
+			}
+		}
+	}
+}
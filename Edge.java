@@ -6,7 +6,8 @@ public class Edge {
 	public Vertex From; // head vertex
 	public Vertex To; // tail vertex
 	public int Weight;// weight of the arc
-	public boolean edgeValid;
+	public boolean edgeValid; // used by Graph.DFSVisit; the solvers test
+								// shortestPath.isTight instead
 
 	/**
 	 * Constructor for Edge
@@ -0,0 +1,185 @@
+/**
+ * Blocked Floyd-Warshall all-pairs shortest paths, for dense graphs where an
+ * n x n matrix is cheaper than a solver run from every vertex.
+ *
+ * The distances are one flat int[] of n x n, cut into square tiles of BLOCK
+ * rows and columns that fit in the L1/L2 cache. Round kb of the algorithm
+ * uses the vertices of tile kb as intermediates, in three phases:
+ *   1. the diagonal tile (kb,kb), on its own;
+ *   2. the other tiles of row kb and of column kb, which only need tile
+ *      (kb,kb), in parallel;
+ *   3. all remaining tiles, which only need their tiles in row and column
+ *      kb, in parallel.
+ * The parallel phases run on a ForkJoinPool. A negative distance from a
+ * vertex to itself at the end means the graph has a negative cycle. Sums are
+ * taken in long and kept at or above Integer.MIN_VALUE, so a negative cycle
+ * stays negative however often it is gone around.
+ *
+ * Usage: FloydWarshall fw = FloydWarshall.fromGraph(g);
+ *        if (fw.solve()) d = fw.distance(u, v);
+ */
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class FloydWarshall {
+	static final int BLOCK = 64; // 64 x 64 ints = 16 KB per tile
+	private static final int INF = SearchState.INF;
+
+	public final int numNodes;
+	private final int[] d; // d[(u-1) * n + (v-1)] is the distance from u to v
+	private final int block;
+	private boolean negativeCycle;
+
+	private FloydWarshall(int n, int block) {
+		if ((long) n * n > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Too many vertices for a distance matrix: " + n);
+		numNodes = n;
+		this.block = block;
+		d = new int[n * n];
+		Arrays.fill(d, INF);
+		for (int i = 0; i < n; i++)
+			d[i * n + i] = 0;
+	}
+
+	/**
+	 * Method to build the initial matrix of an object graph
+	 *
+	 * @param g
+	 *            : Graph
+	 * @return FloydWarshall
+	 */
+	static FloydWarshall fromGraph(Graph g) {
+		FloydWarshall fw = new FloydWarshall(g.numNodes, BLOCK);
+		for (Vertex u : g)
+			for (Edge e : u.Adj) // only the arcs that leave u if g is directed
+				fw.addArc(u.name, e.otherEnd(u).name, e.Weight);
+		return fw;
+	}
+
+	/**
+	 * Method to build the initial matrix of a CSR graph
+	 *
+	 * @param g
+	 *            : CSRGraph
+	 * @return FloydWarshall
+	 */
+	static FloydWarshall fromCSR(CSRGraph g) {
+		FloydWarshall fw = new FloydWarshall(g.numNodes, BLOCK);
+		for (int u = 1; u <= g.numNodes; u++)
+			for (int e = g.begin(u); e < g.end(u); e++)
+				fw.addArc(u, g.target(e), g.weight(e));
+		return fw;
+	}
+
+	private void addArc(int u, int v, int w) {
+		int i = (u - 1) * numNodes + v - 1;
+		d[i] = Math.min(d[i], w);
+	}
+
+	/**
+	 * Floyd-Warshall on the common ForkJoinPool
+	 *
+	 * @return: true if there is no negative cycle, else false
+	 */
+	public boolean solve() {
+		return solve(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Floyd-Warshall
+	 *
+	 * @param pool:
+	 *            ForkJoinPool - runs the tiles of phases 2 and 3
+	 * @return: true if there is no negative cycle, else false
+	 */
+	public boolean solve(ForkJoinPool pool) {
+		int n = numNodes;
+		int tiles = (n + block - 1) / block;
+		List<RecursiveAction> tasks = new ArrayList<>();
+		for (int kb = 0; kb < tiles; kb++) {
+			final int k = kb;
+			tile(k, k, k);
+
+			tasks.clear();
+			for (int b = 0; b < tiles; b++) {
+				if (b == k)
+					continue;
+				final int x = b;
+				tasks.add(action(() -> tile(k, x, k)));
+				tasks.add(action(() -> tile(x, k, k)));
+			}
+			pool.invoke(action(() -> ForkJoinTask.invokeAll(tasks)));
+
+			// one task per row of tiles
+			tasks.clear();
+			for (int ib = 0; ib < tiles; ib++) {
+				if (ib == k)
+					continue;
+				final int i = ib;
+				tasks.add(action(() -> {
+					for (int jb = 0; jb < tiles; jb++)
+						if (jb != k)
+							tile(i, jb, k);
+				}));
+			}
+			pool.invoke(action(() -> ForkJoinTask.invokeAll(tasks)));
+		}
+
+		negativeCycle = false;
+		for (int i = 0; i < n; i++)
+			if (d[i * n + i] < 0)
+				negativeCycle = true;
+		return !negativeCycle;
+	}
+
+	private static RecursiveAction action(Runnable r) {
+		return new RecursiveAction() {
+			protected void compute() {
+				r.run();
+			}
+		};
+	}
+
+	/**
+	 * Relax tile (ib,jb) through the intermediates of tile kb
+	 */
+	private void tile(int ib, int jb, int kb) {
+		int n = numNodes;
+		int i1 = Math.min(n, (ib + 1) * block), j0 = jb * block, j1 = Math.min(n, j0 + block);
+		int k1 = Math.min(n, (kb + 1) * block);
+		for (int k = kb * block; k < k1; k++) {
+			int rk = k * n;
+			for (int i = ib * block; i < i1; i++) {
+				int ri = i * n;
+				int dik = d[ri + k];
+				if (dik == INF)
+					continue;
+				for (int j = j0; j < j1; j++) {
+					int dkj = d[rk + j];
+					// added in long, so a sum past the int range neither wraps
+					// nor turns a negative diagonal back to 0 or positive
+					long dij = (long) dik + dkj;
+					if (dkj != INF && dij < d[ri + j])
+						d[ri + j] = (int) Math.max(dij, Integer.MIN_VALUE);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Distance from u to v after solve()
+	 *
+	 * @return: int - SearchState.INF if there is no path
+	 */
+	public int distance(int u, int v) {
+		return d[(u - 1) * numNodes + v - 1];
+	}
+
+	/**
+	 * @return: boolean - true if the last solve() found a negative cycle
+	 */
+	public boolean hasNegativeCycle() {
+		return negativeCycle;
+	}
+}
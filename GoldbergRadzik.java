@@ -0,0 +1,258 @@
+/**
+ * Goldberg-Radzik shortest paths on a CSR graph with negative arcs, and a
+ * scaling version of it.
+ *
+ * goldbergRadzik works in passes. The labeled vertices (those whose
+ * distance went down since they were last scanned) with an arc of negative
+ * reduced cost d(u) + w(u,v) - d(v) start a DFS over such arcs; the vertices
+ * it finds are scanned in topological order, so a whole chain of
+ * improvements is carried through in one pass instead of one arc per round
+ * of the FIFO queue. A cycle of arcs of negative reduced cost is a negative
+ * cycle. Like bellmanFord it takes O(nm) time at worst, with at most n passes,
+ * and usually a lot fewer.
+ *
+ * costScaling runs the passes on the weights rounded up to multiples of
+ * 2^k, for k from the top bit of the largest |weight| down to 0. The
+ * potentials p of one round, doubled, leave every reduced cost of the next
+ * at -1 or more, so each round is a short Goldberg-Radzik from all the
+ * vertices at once. The last round gives potentials under which every arc
+ * costs 0 or more, and one Dijkstra search with them gives the distances,
+ * as in Johnson. It takes O(log N) rounds for weights of at most N.
+ *
+ * Both fill s like bellmanFord: the distances and a tree of shortest paths
+ * from src, or false if src reaches a negative cycle.
+ *
+ * Usage: if (!GoldbergRadzik.costScaling(g, src, s)) ... negative cycle
+ */
+
+public class GoldbergRadzik {
+
+	/**
+	 * Goldberg-Radzik on a CSR graph
+	 *
+	 * @param g:
+	 *            CSRGraph
+	 * @param src:
+	 *            int - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 * @return: true if there is no negative cycle, else false
+	 */
+	public static boolean goldbergRadzik(CSRGraph g, int src, SearchState s) {
+		s.initialize(src);
+		s.setSeen(src, true);
+		return passes(g, null, s, new int[] { src }, 1);
+	}
+
+	/**
+	 * Goldberg-Radzik passes from the labeled vertices, which must have seen
+	 * set, until no vertex is labeled
+	 *
+	 * @param g:
+	 *            CSRGraph
+	 * @param w:
+	 *            int[] - weight of each arc, null for the weights of g
+	 * @param s:
+	 *            SearchState - the distances so far; seen marks the labeled
+	 *            vertices and count the pass that last listed them
+	 * @param labeled:
+	 *            int[] - the labeled vertices, overwritten
+	 * @param numLabeled:
+	 *            int - number of labeled vertices
+	 * @return: true if there is no negative cycle, else false
+	 */
+	private static boolean passes(CSRGraph g, int[] w, SearchState s, int[] labeled, int numLabeled) {
+		int n = g.numNodes;
+		int[] order = new int[n]; // the vertices of a pass, filled from the back
+		int[] next = new int[n];
+		int[] stack = s.stack(), cursor = s.cursor(); // DFS path and next arc of each level
+		int pass = 0;
+		while (numLabeled > 0) {
+			// a shortest path has fewer than n arcs, and pass i settles the
+			// vertices whose shortest path from the labeled ones has i arcs
+			if (++pass > n)
+				return false;
+			s.clearColors();
+			int pos = n;
+			for (int i = 0; i < numLabeled; i++) {
+				int r = labeled[i];
+				if (!s.seen(r) || s.color(r) != SearchState.WHITE)
+					continue;
+				if (!hasNegativeArc(g, w, s, r)) {
+					s.setSeen(r, false); // nothing to improve from r
+					continue;
+				}
+				// DFS over the arcs of negative reduced cost
+				int top = 0;
+				stack[0] = r;
+				cursor[0] = g.begin(r);
+				s.setColor(r, SearchState.GRAY);
+				if (Metrics.ENABLED)
+					Metrics.count(Metrics.Counter.DFS_VISITS);
+				while (top >= 0) {
+					int u = stack[top];
+					int e = cursor[top];
+					if (e == g.end(u)) {
+						s.setColor(u, SearchState.BLACK);
+						order[--pos] = u;
+						top--;
+						continue;
+					}
+					cursor[top] = e + 1;
+					if (!negative(g, w, s, u, e))
+						continue;
+					int v = g.target(e);
+					if (s.color(v) == SearchState.WHITE) {
+						s.setColor(v, SearchState.GRAY);
+						stack[++top] = v;
+						cursor[top] = g.begin(v);
+						if (Metrics.ENABLED)
+							Metrics.count(Metrics.Counter.DFS_VISITS);
+					} else if (s.color(v) == SearchState.GRAY)
+						return false; // a cycle of negative reduced cost
+				}
+			}
+
+			// scan the vertices found in topological order
+			int numNext = 0;
+			for (int i = pos; i < n; i++) {
+				int u = order[i];
+				s.setSeen(u, false);
+				for (int e = g.begin(u); e < g.end(u); e++) {
+					int v = g.target(e);
+					if (relax(g, w, s, u, e) && !s.seen(v)) {
+						s.setSeen(v, true);
+						if (s.count(v) != pass) {
+							s.setCount(v, pass);
+							next[numNext++] = v;
+							if (Metrics.ENABLED)
+								Metrics.count(Metrics.Counter.QUEUE_PUSHES);
+						}
+					}
+				}
+			}
+			int[] t = labeled.length >= n ? labeled : new int[n];
+			labeled = next;
+			next = t;
+			numLabeled = numNext;
+		}
+		return true;
+	}
+
+	/** weight of arc e */
+	private static int weight(CSRGraph g, int[] w, int e) {
+		return w == null ? g.weight(e) : w[e];
+	}
+
+	/** true if arc e out of u has a negative reduced cost */
+	private static boolean negative(CSRGraph g, int[] w, SearchState s, int u, int e) {
+		return (long) s.distance(u) + weight(g, w, e) < s.distance(g.target(e));
+	}
+
+	private static boolean hasNegativeArc(CSRGraph g, int[] w, SearchState s, int u) {
+		for (int e = g.begin(u); e < g.end(u); e++)
+			if (negative(g, w, s, u, e))
+				return true;
+		return false;
+	}
+
+	/** shortestPath.relax with the weights w */
+	private static boolean relax(CSRGraph g, int[] w, SearchState s, int u, int e) {
+		int v = g.target(e);
+		long d = (long) s.distance(u) + weight(g, w, e);
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.EDGE_RELAXATIONS);
+		if (s.distance(v) > d) {
+			if (Metrics.ENABLED)
+				Metrics.count(Metrics.Counter.RELAXATIONS);
+			s.setDistance(v, (int) d);
+			s.setParent(v, u);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Goldberg-Radzik with scaling of the weights, then Dijkstra
+	 *
+	 * @param g:
+	 *            CSRGraph
+	 * @param src:
+	 *            int - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 * @return: true if there is no negative cycle, else false
+	 */
+	public static boolean costScaling(CSRGraph g, int src, SearchState s) {
+		if (g.nonNegative) {
+			shortestPath.dijkstraShortestPath(g, src, s, HeapType.BINARY, true);
+			return true;
+		}
+		int n = g.numNodes;
+		// only the vertices reachable from src, so that a negative cycle
+		// elsewhere is not reported
+		int[] reach = new int[n];
+		boolean[] reached = new boolean[n + 1];
+		int numReach = 0, maxAbs = 0;
+		reach[numReach++] = src;
+		reached[src] = true;
+		for (int i = 0; i < numReach; i++) {
+			int u = reach[i];
+			for (int e = g.begin(u); e < g.end(u); e++) {
+				int v = g.target(e);
+				maxAbs = Math.max(maxAbs, Math.abs(g.weight(e)));
+				if (!reached[v]) {
+					reached[v] = true;
+					reach[numReach++] = v;
+				}
+			}
+		}
+
+		long[] p = new long[n + 1];
+		int[] w = new int[g.numEdges];
+		int[] labeled = new int[n];
+		SearchState ps = new SearchState(n);
+		// at k = bits every weight would round up to 0 or 1, so p = 0 fits
+		// it, and every round, this first one too, starts from reduced costs
+		// of -1 or more; here it is the negative arcs that round up to -1
+		for (int k = 31 - Integer.numberOfLeadingZeros(maxAbs); k >= 0; k--) {
+			for (int i = 0; i < numReach; i++) {
+				int u = reach[i];
+				p[u] *= 2;
+			}
+			for (int i = 0; i < numReach; i++) {
+				int u = reach[i];
+				for (int e = g.begin(u); e < g.end(u); e++)
+					w[e] = Math.toIntExact(-Math.floorDiv(-(long) g.weight(e), 1L << k) + p[u] - p[g.target(e)]);
+			}
+			// every vertex starts at 0, as from a source with a 0 arc to each
+			ps.reset();
+			for (int i = 0; i < numReach; i++) {
+				int u = reach[i];
+				ps.setDistance(u, 0);
+				ps.setSeen(u, true);
+				labeled[i] = u;
+			}
+			if (!passes(g, w, ps, labeled, numReach))
+				return false;
+			for (int i = 0; i < numReach; i++) {
+				int u = reach[i];
+				p[u] += ps.distance(u);
+			}
+		}
+
+		// every arc now has a reduced cost of 0 or more
+		int[] h = new int[n + 1];
+		for (int i = 0; i < numReach; i++) {
+			int u = reach[i];
+			h[u] = Math.toIntExact(p[u]);
+		}
+		CSRGraph rw = Johnson.reweight(g, h);
+		shortestPath.dijkstraShortestPath(rw, src, s, HeapType.BINARY, true);
+		for (int i = 0; i < numReach; i++) {
+			int v = reach[i];
+			s.setDistance(v, s.distance(v) - h[src] + h[v]);
+		}
+		return true;
+	}
+}
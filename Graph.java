@@ -14,6 +14,9 @@ class Graph implements Iterable<Vertex> {
 	public boolean nonNegative;
 	public boolean uniformW;
 	public int sumOfNumOfPaths;
+	private CSRGraph csr; // CSR copy of the graph, built on demand
+	private int csrVersion; // version the CSR copy was built from
+	private volatile int version; // bumped by every change to the edges
 
 	/**
 	 * Constructor for Graph
@@ -49,6 +52,7 @@ class Graph implements Iterable<Vertex> {
 		Edge e = new Edge(u, v, weight);
 		u.Adj.add(e);
 		v.Adj.add(e);
+		version++;
 	}
 
 	/**
@@ -67,6 +71,52 @@ class Graph implements Iterable<Vertex> {
 		Edge e = new Edge(head, tail, weight);
 		head.Adj.add(e);
 		tail.revAdj.add(e);
+		version++;
+	}
+
+	/**
+	 * Method to change the weight of an edge of the graph
+	 * 
+	 * @param e
+	 *            : Edge - an edge of this graph
+	 * @param weight
+	 *            : int - the new weight
+	 */
+	void setWeight(Edge e, int weight) {
+		if (weight != e.Weight)
+			uniformW = false;
+		if (weight < 0)
+			nonNegative = false;
+		e.Weight = weight;
+		version++;
+	}
+
+	/**
+	 * Method to get the version of the edges of this graph. It changes every
+	 * time the edges change, so results computed on an older version can be
+	 * told apart.
+	 * 
+	 * @return int
+	 */
+	int version() {
+		return version;
+	}
+
+	/**
+	 * Method to get the CSR form of this graph. It is built on the first call
+	 * and kept until the edges change. It is stamped with the version read
+	 * before it was built, so one built while the graph changed is built
+	 * again on the next call. Safe to call from many threads.
+	 * 
+	 * @return CSRGraph
+	 */
+	synchronized CSRGraph csr() {
+		int v = version;
+		if (csr == null || csrVersion != v) {
+			csr = CSRGraph.fromGraph(this);
+			csrVersion = v;
+		}
+		return csr;
 	}
 
 	/**
@@ -123,6 +173,7 @@ class Graph implements Iterable<Vertex> {
 	}
 
 	public static Graph readGraph(Scanner in, boolean directed) {
+		long start = Metrics.start();
 		// read the graph related parameters
 		int n = in.nextInt(); // number of vertices in the graph
 		int m = in.nextInt(); // number of edges in the graph
@@ -150,6 +201,7 @@ class Graph implements Iterable<Vertex> {
 			prevW = w;
 		}
 		in.close();
+		Metrics.record(Metrics.Phase.LOAD, start);
 		return g;
 	}
 
@@ -219,28 +271,44 @@ class Graph implements Iterable<Vertex> {
 	 */
 	public static boolean DFSVisit(Vertex u, ArrayDeque<Vertex> stack, boolean isCycleAllowed, boolean isDirected,
 			LinkedList<Edge> cycle) {
+		// explicit DFS stack, so that a long path does not overflow the
+		// thread stack; next[i] is the next edge of path[i] to look at
+		Vertex[] path = new Vertex[16];
+		int[] next = new int[16];
+		int top = 0;
+		path[0] = u;
 		u.color = Vertex.Color.GRAY; // vertex being processed
-		for (Edge e : u.Adj) {
+		while (top >= 0) {
+			u = path[top];
+			if (next[top] == u.Adj.size()) {
+				u.color = Vertex.Color.BLACK;// vertex processed
+				stack.push(u);
+				path[top--] = null;
+				continue;
+			}
+			Edge e = u.Adj.get(next[top]++);
 			if (!e.edgeValid)
 				continue;
 			Vertex v = e.otherEnd(u);
 			if (v.color == Vertex.Color.WHITE) {
 				v.parent = u;
-
-				if (!DFSVisit(v, stack, isCycleAllowed, isDirected, cycle)) {
-					cycle.add(e);
-					return false;
+				v.color = Vertex.Color.GRAY;
+				if (++top == path.length) {
+					path = Arrays.copyOf(path, 2 * top);
+					next = Arrays.copyOf(next, 2 * top);
 				}
+				path[top] = v;
+				next[top] = 0;
 			} else if (!isCycleAllowed
 					&& ((isDirected && v.color == Vertex.Color.GRAY) || (!isDirected && v != u.parent))) {
-				// To detect cycle and add those edges into the list
+				// To detect cycle and add those edges into the list: this
+				// edge, then the edges down the DFS stack
 				cycle.add(e);
+				for (int i = top - 1; i >= 0; i--)
+					cycle.add(path[i].Adj.get(next[i] - 1));
 				return false;
 			}
 		}
-
-		u.color = Vertex.Color.BLACK;// vertex processed
-		stack.push(u);
 		return true;
 	}
 
@@ -0,0 +1,433 @@
+/**
+ * Generator of random directed graphs for load tests and benchmarks, written
+ * straight to disk in the text format of Graph.readGraph or the binary format
+ * of BinaryGraph. The arcs are never all in memory: the arcs of vertex u come
+ * from a random generator seeded with (seed, u) alone, so they are generated
+ * again, vertex by vertex, every time they are needed. The same seed gives the
+ * same graph in both formats.
+ *
+ * The shapes are the inputs of the branches of shortestPath.shortestPath:
+ *   UNIFORM        - every weight 1 (BFS)
+ *   POSITIVE       - weights 1..100 (Dijkstra)
+ *   DAG            - arcs only to larger vertices, weights -10..100 (DAG)
+ *   GRID           - rows x columns, arcs both ways between neighbours,
+ *                    weights 1..100, like a road network; m is not used
+ *                    (Dijkstra)
+ *   POWER_LAW      - out-degrees and in-degrees with a heavy tail, weights
+ *                    1..100 (Dijkstra)
+ *   NEGATIVE       - weights with negative ones, but no negative cycle
+ *                    (Bellman-Ford)
+ *   NEGATIVE_CYCLE - as NEGATIVE, with the negative cycle 1, 2, 3
+ * Vertex u has an arc to u+1, and in the cyclic shapes n has an arc to 1, so
+ * every vertex can be reached from vertex 1. The other arcs go to random
+ * vertices, for about m arcs in all.
+ *
+ * The text file takes O(1) memory to write, the binary file one int per
+ * vertex. The text format has no limit on the number of arcs; the binary
+ * format holds fewer than 2^31.
+ *
+ * Usage: java GraphGenerator shape n m seed output.txt|output.bin
+ */
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class GraphGenerator {
+	public enum Shape {
+		UNIFORM, POSITIVE, DAG, GRID, POWER_LAW, NEGATIVE, NEGATIVE_CYCLE
+	}
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	public final Shape shape;
+	public final int numNodes;
+	public final long numEdges; // requested number of arcs
+	public final long seed;
+	private final int cols; // width of a GRID
+
+	private long state; // random generator of the current vertex
+	private int[] heads = new int[16], weights = new int[16]; // arcs of the current vertex
+
+	/**
+	 * Constructor for GraphGenerator
+	 *
+	 * @param shape
+	 *            : Shape
+	 * @param n
+	 *            : int - number of vertices
+	 * @param m
+	 *            : long - number of arcs, about
+	 * @param seed
+	 *            : long
+	 */
+	GraphGenerator(Shape shape, int n, long m, long seed) {
+		if (n < (shape == Shape.NEGATIVE_CYCLE ? 3 : 1))
+			throw new IllegalArgumentException("Too few vertices for " + shape + ": " + n);
+		this.shape = shape;
+		numNodes = n;
+		numEdges = m;
+		this.seed = seed;
+		cols = (int) Math.ceil(n / Math.floor(Math.sqrt(n)));
+	}
+
+	/**
+	 * SplitMix64 step of the current generator
+	 */
+	private long next() {
+		return mix(state += 0x9E3779B97F4A7C15L);
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/** random int in [0, bound) */
+	private int nextInt(int bound) {
+		return (int) ((next() >>> 33) * bound >>> 31);
+	}
+
+	/** random double in (0, 1] */
+	private double nextDouble() {
+		return ((next() >>> 11) + 1) * 0x1.0p-53;
+	}
+
+	/**
+	 * Potential of v that turns the weights of NEGATIVE graphs negative
+	 */
+	private int potential(int v) {
+		return (int) ((mix(seed ^ (0xD1B54A32D192ED03L * v)) >>> 1) % 50);
+	}
+
+	/**
+	 * Number of random arcs of every vertex, apart from the ring
+	 */
+	private long extra() {
+		return Math.max(0, numEdges - numNodes);
+	}
+
+	/**
+	 * Generate the arcs of u into heads[] and weights[]
+	 *
+	 * @return: int - number of arcs of u
+	 */
+	int arcs(int u) {
+		int n = numNodes;
+		int hu = shape == Shape.NEGATIVE || shape == Shape.NEGATIVE_CYCLE ? potential(u) : 0;
+		state = seed * 0x9E3779B97F4A7C15L + u;
+		next();
+
+		int k = 0;
+		if (shape == Shape.GRID) {
+			int r = (u - 1) / cols, c = (u - 1) % cols;
+			int[] nbr = { c > 0 ? u - 1 : 0, c + 1 < cols ? u + 1 : 0, r > 0 ? u - cols : 0, u + cols };
+			for (int v : nbr)
+				if (v >= 1 && v <= n)
+					k = add(k, v, 1 + nextInt(100));
+			return k;
+		}
+
+		// the ring, or the path of a DAG
+		if (u < n)
+			k = add(k, u + 1, 0);
+		else if (shape != Shape.DAG && n > 1)
+			k = add(k, 1, 0);
+		if (shape == Shape.NEGATIVE_CYCLE && u == 3)
+			k = add(k, 1, 0);
+
+		long random;
+		if (shape == Shape.POWER_LAW) {
+			// Pareto with exponent 2 and mean extra / n
+			double mean = (double) extra() / n;
+			random = Math.min(n, (long) (mean / 2 / Math.sqrt(nextDouble())));
+		} else if (shape == Shape.DAG) {
+			random = u == n ? 0 : extra() / (n - 1) + (u <= extra() % (n - 1) ? 1 : 0);
+		} else {
+			random = extra() / n + (u <= extra() % n ? 1 : 0);
+		}
+		for (long i = 0; i < random; i++) {
+			int v;
+			if (shape == Shape.DAG)
+				v = u + 1 + nextInt(n - u);
+			else if (shape == Shape.POWER_LAW)
+				v = 1 + (int) (n * Math.pow(nextDouble(), 3) - 1e-9);
+			else
+				v = 1 + nextInt(n);
+			k = add(k, v, 0);
+		}
+
+		for (int i = 0; i < k; i++) {
+			switch (shape) {
+			case UNIFORM:
+				weights[i] = 1;
+				break;
+			case DAG:
+				weights[i] = nextInt(111) - 10;
+				break;
+			case NEGATIVE:
+			case NEGATIVE_CYCLE:
+				int base = 1 + nextInt(100);
+				if (shape == Shape.NEGATIVE_CYCLE && (u < 3 && i == 0 || u == 3 && i == 1))
+					base = u == 3 ? -3 : 1; // the cycle 1, 2, 3 weighs -1
+				// every other cycle weighs what it would without the potentials
+				weights[i] = base + hu - potential(heads[i]);
+				break;
+			default:
+				weights[i] = 1 + nextInt(100);
+			}
+		}
+		return k;
+	}
+
+	private int add(int k, int v, int w) {
+		if (k == heads.length) {
+			heads = Arrays.copyOf(heads, 2 * k);
+			weights = Arrays.copyOf(weights, 2 * k);
+		}
+		heads[k] = v;
+		weights[k] = w;
+		return k + 1;
+	}
+
+	/**
+	 * Number of arcs the graph has
+	 */
+	long countArcs() {
+		long m = 0;
+		for (int u = 1; u <= numNodes; u++)
+			m += arcs(u);
+		return m;
+	}
+
+	/**
+	 * Method to write the graph in the text format of Graph.readGraph
+	 *
+	 * @param file
+	 *            : Path - created or overwritten
+	 * @return long - number of arcs written
+	 */
+	long writeText(Path file) throws IOException {
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			return writeText(ch);
+		}
+	}
+
+	/**
+	 * Method to write the graph in the text format of Graph.readGraph
+	 *
+	 * @param ch
+	 *            : WritableByteChannel
+	 * @return long - number of arcs written
+	 */
+	long writeText(WritableByteChannel ch) throws IOException {
+		long m = countArcs();
+		TextOut out = new TextOut(ch);
+		out.put(numNodes).put(' ').put(m).put('\n');
+		for (int u = 1; u <= numNodes; u++) {
+			int k = arcs(u);
+			for (int i = 0; i < k; i++)
+				out.put(u).put(' ').put(heads[i]).put(' ').put(weights[i]).put('\n');
+		}
+		out.flush();
+		return m;
+	}
+
+	/**
+	 * Method to build the graph in memory, as Graph.readGraph would
+	 *
+	 * @return Graph - directed
+	 */
+	Graph toGraph() {
+		Graph g = new Graph(numNodes);
+		boolean first = true;
+		int firstW = 0;
+		for (int u = 1; u <= numNodes; u++) {
+			int k = arcs(u);
+			for (int i = 0; i < k; i++) {
+				if (first) {
+					firstW = weights[i];
+					first = false;
+				}
+				if (weights[i] < 0)
+					g.nonNegative = false;
+				if (weights[i] != firstW)
+					g.uniformW = false;
+				g.addDirectedEdge(u, heads[i], weights[i]);
+			}
+		}
+		return g;
+	}
+
+	/**
+	 * Buffered ASCII output of numbers to a channel
+	 */
+	private static class TextOut {
+		private final WritableByteChannel ch;
+		private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+		private final byte[] digits = new byte[20];
+
+		TextOut(WritableByteChannel ch) {
+			this.ch = ch;
+		}
+
+		TextOut put(char c) throws IOException {
+			if (!buf.hasRemaining())
+				flush();
+			buf.put((byte) c);
+			return this;
+		}
+
+		TextOut put(long x) throws IOException {
+			if (buf.remaining() < 21)
+				flush();
+			if (x < 0) {
+				buf.put((byte) '-');
+				x = -x;
+			}
+			int d = 0;
+			do {
+				digits[d++] = (byte) ('0' + x % 10);
+				x /= 10;
+			} while (x > 0);
+			while (d > 0)
+				buf.put(digits[--d]);
+			return this;
+		}
+
+		void flush() throws IOException {
+			buf.flip();
+			while (buf.hasRemaining())
+				ch.write(buf);
+			buf.clear();
+		}
+	}
+
+	/**
+	 * Method to write the graph in the binary format of BinaryGraph. The file
+	 * is filled through a read-write mapping: the forward sections in order,
+	 * the reverse sections at the next free slot of the head of each arc.
+	 *
+	 * @param file
+	 *            : Path - created or overwritten
+	 * @return long - number of arcs written
+	 */
+	long writeBinary(Path file) throws IOException {
+		int n = numNodes;
+		// in-degrees, made into the next free slot of each reverse list
+		int[] next = new int[n + 2];
+		long count = 0;
+		boolean nonNegative = true, uniformW = true;
+		int first = 0;
+		for (int u = 1; u <= n; u++) {
+			int k = arcs(u);
+			for (int i = 0; i < k; i++) {
+				next[heads[i] + 1]++;
+				if (count + i == 0)
+					first = weights[i];
+				if (weights[i] < 0)
+					nonNegative = false;
+				if (weights[i] != first)
+					uniformW = false;
+			}
+			count += k;
+		}
+		if (count > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The binary format holds fewer than 2^31 arcs, not " + count);
+		int m = (int) count;
+
+		int flags = BinaryGraph.DIRECTED | (nonNegative ? BinaryGraph.NON_NEGATIVE : 0)
+				| (uniformW ? BinaryGraph.UNIFORM_W : 0) | (shape == Shape.DAG ? BinaryGraph.ACYCLIC : 0);
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(BinaryGraph.HEADER_SIZE).order(BinaryGraph.ORDER);
+			header.putInt(BinaryGraph.MAGIC).putInt(BinaryGraph.VERSION).putInt(flags).putInt(n).putInt(m);
+			header.putInt(0).putInt(0).putInt(0).flip();
+			while (header.hasRemaining())
+				ch.write(header, header.position());
+
+			long position = BinaryGraph.HEADER_SIZE;
+			Section off = new Section(ch, position, n + 2);
+			Section to = new Section(ch, position += 4L * (n + 2), m);
+			Section wt = new Section(ch, position += 4L * m, m);
+			Section roff = new Section(ch, position += 4L * m, n + 2);
+			Section from = new Section(ch, position += 4L * (n + 2), m);
+			Section rwt = new Section(ch, position + 4L * m, m);
+
+			for (int v = 1; v <= n + 1; v++)
+				next[v] += next[v - 1];
+			for (int v = 0; v <= n + 1; v++)
+				roff.put(v, next[v]);
+
+			int e = 0;
+			off.put(0, 0);
+			for (int u = 1; u <= n; u++) {
+				off.put(u, e);
+				int k = arcs(u);
+				for (int i = 0; i < k; i++, e++) {
+					to.put(e, heads[i]);
+					wt.put(e, weights[i]);
+					int r = next[heads[i]]++;
+					from.put(r, u);
+					rwt.put(r, weights[i]);
+				}
+			}
+			off.put(n + 1, e);
+
+			for (Section s : new Section[] { off, to, wt, roff, from, rwt })
+				s.force();
+		}
+		return m;
+	}
+
+	/**
+	 * A section of ints of the binary file, mapped read-write in chunks of
+	 * 2^28 ints like MappedCSRGraph
+	 */
+	private static class Section {
+		private final MappedByteBuffer[] mapped;
+		private final IntBuffer[] chunks;
+
+		Section(FileChannel ch, long position, long count) throws IOException {
+			int c = (int) ((count + MappedCSRGraph.CHUNK_MASK) >>> MappedCSRGraph.CHUNK_SHIFT);
+			mapped = new MappedByteBuffer[c];
+			chunks = new IntBuffer[c];
+			for (int i = 0; i < c; i++) {
+				long ints = Math.min(count - ((long) i << MappedCSRGraph.CHUNK_SHIFT),
+						1L << MappedCSRGraph.CHUNK_SHIFT);
+				mapped[i] = ch.map(FileChannel.MapMode.READ_WRITE, position, 4 * ints);
+				chunks[i] = mapped[i].order(BinaryGraph.ORDER).asIntBuffer();
+				position += 4 * ints;
+			}
+		}
+
+		void put(long i, int x) {
+			chunks[(int) (i >>> MappedCSRGraph.CHUNK_SHIFT)].put((int) (i & MappedCSRGraph.CHUNK_MASK), x);
+		}
+
+		void force() {
+			for (MappedByteBuffer mb : mapped)
+				mb.force();
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 5) {
+			System.out.println("Usage: java GraphGenerator " + Arrays.toString(Shape.values())
+					+ " n m seed output.txt|output.bin");
+			return;
+		}
+		GraphGenerator gen = new GraphGenerator(Shape.valueOf(args[0].toUpperCase()), Integer.parseInt(args[1]),
+				Long.parseLong(args[2]), Long.parseLong(args[3]));
+		Path out = Paths.get(args[4]);
+		Timer t = new Timer();
+		long m = out.toString().endsWith(".bin") ? gen.writeBinary(out) : gen.writeText(out);
+		t.end();
+		System.out.println(gen.shape + ": " + gen.numNodes + " vertices, " + m + " arcs. Write: " + t.elapsedTime
+				+ " msec.");
+	}
+}
@@ -0,0 +1,184 @@
+/**
+ * Reader for the edge list format of Graph.readGraph ("n m" followed by m
+ * lines of "u v w") that works on an NIO channel with a hand-written integer
+ * tokenizer instead of java.util.Scanner. It also keeps the load time, so that
+ * it can be reported apart from the time taken by the solvers.
+ *
+ * Usage: GraphReader reader = new GraphReader(channel);
+ *        CSRGraph g = reader.readCSR(true);
+ *        System.out.println(reader);  // load statistics
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.InputMismatchException;
+
+public class GraphReader {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final ReadableByteChannel in;
+	private final byte[] buf = new byte[BUFFER_SIZE];
+	private final ByteBuffer bb = ByteBuffer.wrap(buf);
+	private int pos, lim; // buf[pos..lim) is not yet tokenized
+
+	long elapsedTime; // nanoseconds taken by the last read
+	long numEdges; // edges read by the last read
+
+	/**
+	 * Constructor for GraphReader
+	 *
+	 * @param in
+	 *            : ReadableByteChannel - the input, closed after reading
+	 */
+	GraphReader(ReadableByteChannel in) {
+		this.in = in;
+	}
+
+	/**
+	 * Method to open a reader on a file
+	 *
+	 * @param file
+	 *            : Path
+	 */
+	static GraphReader open(Path file) throws IOException {
+		return new GraphReader(FileChannel.open(file, StandardOpenOption.READ));
+	}
+
+	/**
+	 * Method to read the graph into CSR form
+	 *
+	 * @param directed
+	 *            : boolean - false if every edge goes both ways
+	 * @return CSRGraph
+	 */
+	CSRGraph readCSR(boolean directed) throws IOException {
+		long start = System.nanoTime();
+		int n, m;
+		int[] us, vs, ws;
+		try {
+			n = nextInt(); // number of vertices in the graph
+			m = nextInt(); // number of edges in the graph
+			us = new int[m];
+			vs = new int[m];
+			ws = new int[m];
+			for (int i = 0; i < m; i++) {
+				us[i] = nextInt();
+				vs[i] = nextInt();
+				ws[i] = nextInt();
+			}
+		} finally {
+			in.close(); // also when the input is malformed
+		}
+		// build() works out the nonNegative and uniformW flags as it counts
+		// the degrees
+		CSRGraph g = CSRGraph.build(n, m, us, vs, ws, directed);
+		elapsedTime = System.nanoTime() - start;
+		numEdges = m;
+		Metrics.recordNanos(Metrics.Phase.LOAD, elapsedTime);
+		return g;
+	}
+
+	/**
+	 * Method to read the graph into Vertex and Edge objects. Same result as
+	 * Graph.readGraph(Scanner, boolean).
+	 *
+	 * @param directed
+	 *            : boolean - false if every edge goes both ways
+	 * @return Graph
+	 */
+	Graph readGraph(boolean directed) throws IOException {
+		long start = System.nanoTime();
+		int m;
+		Graph g;
+		try {
+			int n = nextInt();
+			m = nextInt();
+			g = new Graph(n);
+			int firstW = 0;
+			for (int i = 0; i < m; i++) {
+				int u = nextInt();
+				int v = nextInt();
+				int w = nextInt();
+				if (w < 0)
+					g.nonNegative = false;
+				if (i == 0)
+					firstW = w;
+				else if (firstW != w)
+					g.uniformW = false;
+				if (directed) {
+					g.addDirectedEdge(u, v, w);
+				} else {
+					g.addEdge(u, v, w);
+				}
+			}
+		} finally {
+			in.close(); // also when the input is malformed
+		}
+		elapsedTime = System.nanoTime() - start;
+		numEdges = m;
+		Metrics.recordNanos(Metrics.Phase.LOAD, elapsedTime);
+		return g;
+	}
+
+	/**
+	 * Method to read the next integer of the input
+	 *
+	 * @return int
+	 * @throws EOFException
+	 *             if the input ends before the integer
+	 * @throws InputMismatchException
+	 *             if the next token is not an integer
+	 */
+	int nextInt() throws IOException {
+		int c = read();
+		while (c == ' ' || c == '\n' || c == '\r' || c == '\t')
+			c = read();
+		if (c < 0)
+			throw new EOFException("Unexpected end of graph input");
+		boolean negative = false;
+		if (c == '-') {
+			negative = true;
+			c = read();
+		}
+		if (c < '0' || c > '9')
+			throw new InputMismatchException("Expected an integer in graph input");
+		int x = 0;
+		do {
+			x = x * 10 + (c - '0');
+			c = read();
+		} while (c >= '0' && c <= '9');
+		return negative ? -x : x;
+	}
+
+	/**
+	 * Method to get the next byte of the input, refilling the buffer from the
+	 * channel when it is used up
+	 *
+	 * @return int - the byte, -1 at the end of the input
+	 */
+	private int read() throws IOException {
+		if (pos == lim) {
+			bb.clear();
+			int r;
+			do {
+				r = in.read(bb);
+			} while (r == 0);
+			if (r < 0)
+				return -1;
+			pos = 0;
+			lim = r;
+		}
+		return buf[pos++] & 0xff; // a byte >= 0x80 must not read as -1
+	}
+
+	/**
+	 * Load time and throughput of the last read
+	 */
+	public String toString() {
+		long msec = elapsedTime / 1000000;
+		long rate = elapsedTime > 0 ? numEdges * 1000000000L / elapsedTime : 0;
+		return "Load: " + msec + " msec. " + numEdges + " edges, " + rate + " edges/sec.";
+	}
+}
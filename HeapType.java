@@ -0,0 +1,29 @@
+/**
+ * The IntPQ implementations that dijkstraShortestPath can run with
+ *
+ */
+public enum HeapType {
+	BINARY, FOUR_ARY, PAIRING, RADIX, DIAL;
+
+	/**
+	 * Create an empty queue of this type for vertices 1..n
+	 *
+	 * @param n
+	 *            : int - number of vertices
+	 * @return IntPQ
+	 */
+	IntPQ create(int n) {
+		switch (this) {
+		case FOUR_ARY:
+			return new DaryHeap(n, 4);
+		case PAIRING:
+			return new PairingHeap(n);
+		case RADIX:
+			return new RadixHeap(n);
+		case DIAL:
+			return new DialHeap(n);
+		default:
+			return new IntBinaryHeap(n);
+		}
+	}
+}
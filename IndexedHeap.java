@@ -19,6 +19,8 @@ public class IndexedHeap<T extends Index> extends BinaryHeap<T> {
 
 	/** restore heap order property after the priority of x has decreased */
 	void decreaseKey(T x) {
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.HEAP_DECREASE_KEYS);
 		percolateUp(x.getIndex());
 	}
 	
@@ -0,0 +1,108 @@
+/**
+ * Indexed binary min-heap of vertex names (ints) with long keys. It does the
+ * work of IndexedHeap<Vertex> for the CSR solvers without any objects: the
+ * heap position of every vertex is kept in an int array.
+ *
+ */
+
+public class IntBinaryHeap implements IntPQ {
+	int[] pq; // pq[1..size] are vertex names, pq[0] is not used
+	long[] key; // key of each vertex, indexed by name
+	int[] index; // position of each vertex in pq, 0 if not in the heap
+	int size;
+
+	/** Create an empty priority queue for vertices 1..n */
+	IntBinaryHeap(int n) {
+		pq = new int[n + 1];
+		key = new long[n + 1];
+		index = new int[n + 1];
+		size = 0;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean contains(int v) {
+		return index[v] != 0;
+	}
+
+	public long key(int v) {
+		return key[v];
+	}
+
+	public void clear() {
+		while (size > 0)
+			index[pq[size--]] = 0;
+	}
+
+	public void insert(int v, long k) {
+		key[v] = k;
+		size++;
+		assign(size, v);
+		percolateUp(size);
+	}
+
+	public int deleteMin() {
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.HEAP_REMOVES);
+		int min = pq[1];
+		index[min] = 0;
+		if (--size > 0) {
+			assign(1, pq[size + 1]);
+			percolateDown(1);
+		}
+		return min;
+	}
+
+	public int min() {
+		return pq[1];
+	}
+
+	/** restore heap order property after the key of v has decreased */
+	public void decreaseKey(int v, long k) {
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.HEAP_DECREASE_KEYS);
+		key[v] = k;
+		percolateUp(index[v]);
+	}
+
+	/** pq[i] may violate heap order with parent */
+	void percolateUp(int i) {
+		int x = pq[i];
+		long k = key[x];
+		while (i > 1 && key[pq[i / 2]] > k) {
+			if (Metrics.ENABLED)
+				Metrics.count(Metrics.Counter.PERCOLATE_UP_STEPS);
+			assign(i, pq[i / 2]);
+			i = i / 2;
+		}
+		assign(i, x);
+	}
+
+	/** pq[i] may violate heap order with children */
+	void percolateDown(int i) {
+		int child;
+		int x = pq[i];
+		long k = key[x];
+		for (; 2 * i <= size; i = child) {
+			child = 2 * i;
+			if (child != size && key[pq[child + 1]] < key[pq[child]])
+				child++;
+			if (key[pq[child]] < k)
+				assign(i, pq[child]);
+			else
+				break;
+		}
+		assign(i, x);
+	}
+
+	void assign(int i, int v) {
+		pq[i] = v;
+		index[v] = i;
+	}
+}
@@ -0,0 +1,18 @@
+// Primitive version of PQ for the CSR solvers: the elements are vertex names
+// (ints) and the priorities are long keys, so no objects or comparators are
+// involved.
+
+public interface IntPQ {
+    public void insert(int v, long key);
+    public int deleteMin();
+    public int min();
+
+    /** lower the key of v, which must be in the queue */
+    public void decreaseKey(int v, long key);
+    public boolean contains(int v);
+    public boolean isEmpty();
+    public int size();
+
+    /** remove all elements, so the queue can be used again */
+    public void clear();
+}
@@ -0,0 +1,149 @@
+/**
+ * Johnson's all-pairs shortest paths for CSR graphs that may have negative
+ * edges but no negative cycle.
+ *
+ * One bellmanFord run from a virtual source n+1, with a 0 arc to every
+ * vertex, gives each vertex a potential h(v). The arc weights
+ * w(u,v) + h(u) - h(v) are then non-negative and keep the same shortest
+ * paths, so dijkstraShortestPath can run from every vertex, in parallel; the
+ * real distance is d'(u,v) - h(u) + h(v).
+ *
+ * The rows are streamed to the caller as they are done, so the n x n result
+ * does not have to fit on the heap; a DistanceMatrix can take them, on the
+ * heap or memory-mapped.
+ *
+ * Usage: DistanceMatrix d = Johnson.allPairs(g, DistanceMatrix.onHeap(g.numNodes), 8);
+ */
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.ObjIntConsumer;
+
+public class Johnson {
+
+	/**
+	 * Potentials of all vertices: their distance from a virtual source with a
+	 * 0 arc to every vertex
+	 *
+	 * @param g:
+	 *            CSRGraph
+	 * @return: int[] - h[v] for v in 1..n, null if g has a negative cycle
+	 */
+	static int[] potentials(CSRGraph g) {
+		int n = g.numNodes, m = g.numEdges;
+		int[] us = new int[m + n], vs = new int[m + n], ws = new int[m + n];
+		int i = 0;
+		for (int u = 1; u <= n; u++) {
+			for (int e = g.begin(u); e < g.end(u); e++, i++) {
+				us[i] = u;
+				vs[i] = g.target(e);
+				ws[i] = g.weight(e);
+			}
+		}
+		for (int v = 1; v <= n; v++, i++) {
+			us[i] = n + 1;
+			vs[i] = v;
+		}
+		CSRGraph aug = CSRGraph.build(n + 1, m + n, us, vs, ws, true);
+		SearchState s = new SearchState(n + 1);
+		if (!shortestPath.bellmanFord(aug, n + 1, s))
+			return null;
+		int[] h = new int[n + 1];
+		for (int v = 1; v <= n; v++)
+			h[v] = s.distance(v);
+		return h;
+	}
+
+	/**
+	 * The graph with every arc weight w(u,v) + h(u) - h(v)
+	 */
+	static CSRGraph reweight(CSRGraph g, int[] h) {
+		int m = g.numEdges;
+		int[] us = new int[m], vs = new int[m], ws = new int[m];
+		int i = 0;
+		for (int u = 1; u <= g.numNodes; u++) {
+			for (int e = g.begin(u); e < g.end(u); e++, i++) {
+				us[i] = u;
+				vs[i] = g.target(e);
+				ws[i] = g.weight(e) + h[u] - h[vs[i]];
+			}
+		}
+		CSRGraph rw = CSRGraph.build(g.numNodes, m, us, vs, ws, true);
+		rw.directed = g.directed;
+		return rw;
+	}
+
+	/**
+	 * All-pairs shortest paths into a distance matrix
+	 *
+	 * @param g:
+	 *            CSRGraph
+	 * @param d:
+	 *            DistanceMatrix - of g.numNodes vertices, receives the rows
+	 * @param parallelism:
+	 *            int - number of sources solved at the same time
+	 * @return: DistanceMatrix - d, null if g has a negative cycle
+	 */
+	public static DistanceMatrix allPairs(CSRGraph g, DistanceMatrix d, int parallelism)
+			throws InterruptedException {
+		return allPairs(g, (row, u) -> d.putRow(u, row), parallelism) ? d : null;
+	}
+
+	/**
+	 * All-pairs shortest paths, streamed one row at a time
+	 *
+	 * @param g:
+	 *            CSRGraph
+	 * @param out:
+	 *            ObjIntConsumer<int[]> - gets (row, u) for every vertex u,
+	 *            where row[v] is the distance from u to v (SearchState.INF if
+	 *            there is no path). It is called from the worker threads, and
+	 *            row is reused once it returns
+	 * @param parallelism:
+	 *            int - number of sources solved at the same time
+	 * @return: true if there is no negative cycle, else false
+	 */
+	public static boolean allPairs(CSRGraph g, ObjIntConsumer<int[]> out, int parallelism)
+			throws InterruptedException {
+		int[] h = g.nonNegative ? new int[g.numNodes + 1] : potentials(g);
+		if (h == null)
+			return false;
+		CSRGraph rw = g.nonNegative ? g : reweight(g, h);
+
+		ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+		AtomicInteger next = new AtomicInteger(1);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		try {
+			for (int w = 0; w < parallelism; w++) {
+				pool.submit(() -> {
+					SearchState s = new SearchState(g.numNodes);
+					int[] row = new int[g.numNodes + 1];
+					try {
+						int u;
+						while (failure.get() == null && (u = next.getAndIncrement()) <= g.numNodes) {
+							shortestPath.dijkstraShortestPath(rw, u, s, HeapType.BINARY, true);
+							for (int v = 1; v <= g.numNodes; v++) {
+								int dv = s.distance(v);
+								row[v] = dv == SearchState.INF ? dv : dv - h[u] + h[v];
+							}
+							out.accept(row, u);
+						}
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+					}
+				});
+			}
+		} finally {
+			pool.shutdown();
+		}
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			throw e;
+		}
+		if (failure.get() != null)
+			throw new IllegalStateException("All-pairs worker failed", failure.get());
+		return true;
+	}
+}
@@ -0,0 +1,231 @@
+/**
+ * Landmark distances for ALT queries: for a few landmark vertices L, the
+ * distance from L to every vertex and from every vertex to L. By the triangle
+ * inequality, d(L,t) - d(L,v) and d(v,L) - d(t,L) are lower bounds on d(v,t).
+ *
+ * The distances are kept in two flat int arrays, k entries per vertex, so the
+ * bounds of one vertex are next to each other in memory. They can be saved to
+ * a file and loaded again, so that preprocessing runs once per graph.
+ *
+ * File layout (all ints little-endian):
+ *   header - magic "LMKS", version, n, k (16 bytes)
+ *   the k landmarks, then from[] and to[], (n+1) * k ints each
+ *
+ */
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+
+public class Landmarks {
+	static final int MAGIC = 0x534b4d4c; // "LMKS" read as a little-endian int
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+
+	final int numNodes;
+	final int k;
+	final int[] landmark;
+	final int[] from; // from[v * k + i] = d(landmark i, v), INF if unreachable
+	final int[] to; // to[v * k + i] = d(v, landmark i), INF if unreachable
+
+	private Landmarks(int n, int[] landmark) {
+		numNodes = n;
+		k = landmark.length;
+		this.landmark = landmark;
+		long size = (long) (n + 1) * k;
+		if (size > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Too many landmarks for " + n + " vertices");
+		from = new int[(int) size];
+		to = new int[(int) size];
+	}
+
+	/**
+	 * Farthest-first landmarks: each new landmark is the vertex farthest from
+	 * the landmarks chosen so far. A vertex that no landmark reaches counts as
+	 * farthest, so every part of the graph gets one if k allows. Once every
+	 * vertex is at distance 0 from a landmark, another one would give no
+	 * bound, so there may be fewer than k.
+	 *
+	 * @param g:
+	 *            CSRGraph - with only non-negative edges
+	 * @param k:
+	 *            int - number of landmarks
+	 * @param start:
+	 *            int - the first landmark is the vertex farthest from start
+	 * @return: Landmarks
+	 */
+	public static Landmarks farthest(CSRGraph g, int k, int start) {
+		check(g, k);
+		SearchState s = new SearchState(g.numNodes);
+		int[] near = new int[g.numNodes + 1]; // distance to the nearest landmark
+		shortestPath.dijkstraShortestPath(g, start, s, HeapType.BINARY, true);
+		for (int v = 1; v <= g.numNodes; v++)
+			near[v] = s.distance(v);
+
+		int[] chosen = new int[k];
+		boolean[] isLandmark = new boolean[g.numNodes + 1];
+		for (int i = 0; i < k; i++) {
+			int best = 0;
+			for (int v = 1; v <= g.numNodes; v++)
+				if (!isLandmark[v] && (best == 0 || near[v] > near[best]))
+					best = v;
+			if (i > 0 && near[best] == 0) {
+				chosen = Arrays.copyOf(chosen, i);
+				break;
+			}
+			chosen[i] = best;
+			isLandmark[best] = true;
+			near[best] = 0;
+			shortestPath.dijkstraShortestPath(g, best, s, HeapType.BINARY, true);
+			for (int v = 1; v <= g.numNodes; v++)
+				near[v] = Math.min(near[v], s.distance(v));
+		}
+		Landmarks lm = new Landmarks(g.numNodes, chosen);
+		lm.compute(g, s);
+		return lm;
+	}
+
+	/**
+	 * The k vertices with the most arcs, in and out, as landmarks
+	 *
+	 * @param g:
+	 *            CSRGraph - with only non-negative edges
+	 * @param k:
+	 *            int - number of landmarks
+	 * @return: Landmarks
+	 */
+	public static Landmarks byDegree(CSRGraph g, int k) {
+		check(g, k);
+		// the best k so far, by decreasing degree
+		int[] chosen = new int[k], degree = new int[k];
+		Arrays.fill(degree, -1);
+		for (int v = 1; v <= g.numNodes; v++) {
+			int d = g.end(v) - g.begin(v) + g.rend(v) - g.rbegin(v);
+			int i = k;
+			while (i > 0 && degree[i - 1] < d)
+				i--;
+			if (i == k)
+				continue;
+			System.arraycopy(chosen, i, chosen, i + 1, k - i - 1);
+			System.arraycopy(degree, i, degree, i + 1, k - i - 1);
+			chosen[i] = v;
+			degree[i] = d;
+		}
+		Landmarks lm = new Landmarks(g.numNodes, chosen);
+		lm.compute(g, new SearchState(g.numNodes));
+		return lm;
+	}
+
+	private static void check(CSRGraph g, int k) {
+		if (!g.nonNegative)
+			throw new IllegalArgumentException("Landmarks need non-negative edge weights");
+		if (k < 1 || k > g.numNodes)
+			throw new IllegalArgumentException("Number of landmarks must be in 1.." + g.numNodes);
+	}
+
+	/**
+	 * Dijkstra from every landmark on g and on its reverse
+	 */
+	private void compute(CSRGraph g, SearchState s) {
+		CSRGraph rev = g.reverse();
+		for (int i = 0; i < k; i++) {
+			shortestPath.dijkstraShortestPath(g, landmark[i], s, HeapType.BINARY, true);
+			for (int v = 0; v <= numNodes; v++)
+				from[v * k + i] = s.distance(v);
+			shortestPath.dijkstraShortestPath(rev, landmark[i], s, HeapType.BINARY, true);
+			for (int v = 0; v <= numNodes; v++)
+				to[v * k + i] = s.distance(v);
+		}
+	}
+
+	/**
+	 * Lower bound on the distance from v to t
+	 *
+	 * @return: int - 0 if no landmark gives a bound
+	 */
+	int lowerBound(int v, int t) {
+		int best = 0;
+		for (int i = 0, a = v * k, b = t * k; i < k; i++, a++, b++) {
+			// a bound only holds when both distances are finite
+			if (from[a] != SearchState.INF && from[b] != SearchState.INF)
+				best = Math.max(best, from[b] - from[a]);
+			if (to[a] != SearchState.INF && to[b] != SearchState.INF)
+				best = Math.max(best, to[a] - to[b]);
+		}
+		return best;
+	}
+
+	/**
+	 * Method to write the landmarks and their distances to a file
+	 *
+	 * @param file
+	 *            : Path - created or overwritten
+	 */
+	void save(Path file) throws IOException {
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16).order(BinaryGraph.ORDER);
+			buf.putInt(MAGIC).putInt(VERSION).putInt(numNodes).putInt(k);
+			for (int[] a : new int[][] { landmark, from, to })
+				for (int x : a)
+					BinaryGraph.put(ch, buf, x);
+			BinaryGraph.flush(ch, buf);
+		}
+	}
+
+	/**
+	 * Method to read landmarks written by save() for the graph g
+	 *
+	 * @param file
+	 *            : Path
+	 * @param g
+	 *            : CSRGraph - the graph they were computed on
+	 * @return Landmarks
+	 * @throws IOException
+	 *             if the file is not a landmark file for a graph of this size,
+	 *             or its landmarks are not vertices of it
+	 */
+	static Landmarks load(Path file, CSRGraph g) throws IOException {
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16).order(BinaryGraph.ORDER);
+			buf.flip();
+			if (get(ch, buf) != MAGIC)
+				throw new IOException("Not a landmark file: " + file);
+			int version = get(ch, buf);
+			if (version != VERSION)
+				throw new IOException("Unsupported landmark file version " + version + ": " + file);
+			int n = get(ch, buf), k = get(ch, buf);
+			if (n != g.numNodes)
+				throw new IOException("Landmarks are for " + n + " vertices, graph has " + g.numNodes);
+			if (k < 1 || k > n)
+				throw new IOException("Number of landmarks " + k + " is not in 1.." + n + ": " + file);
+			int[] landmark = new int[k];
+			for (int i = 0; i < k; i++) {
+				landmark[i] = get(ch, buf);
+				if (landmark[i] < 1 || landmark[i] > n)
+					throw new IOException("Landmark " + landmark[i] + " is not a vertex: " + file);
+			}
+			Landmarks lm = new Landmarks(n, landmark);
+			for (int[] a : new int[][] { lm.from, lm.to })
+				for (int i = 0; i < a.length; i++)
+					a[i] = get(ch, buf);
+			return lm;
+		}
+	}
+
+	/**
+	 * Next int of the file, reading another block when buf runs out
+	 */
+	private static int get(FileChannel ch, ByteBuffer buf) throws IOException {
+		if (buf.remaining() < 4) {
+			buf.compact();
+			while (buf.position() < 4)
+				if (ch.read(buf) < 0)
+					throw new EOFException("Landmark file is cut short");
+			buf.flip();
+		}
+		return buf.getInt();
+	}
+}
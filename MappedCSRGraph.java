@@ -0,0 +1,124 @@
+/**
+ * CSRGraph whose arrays are pages of a memory-mapped binary graph file (see
+ * BinaryGraph). The solvers read the arcs straight from the mapping through
+ * the accessor methods; nothing is copied onto the heap.
+ *
+ * A mapping cannot be larger than 2 GB, so every section is mapped in chunks
+ * of 2^28 ints.
+ *
+ */
+
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+class MappedCSRGraph extends CSRGraph {
+	static final int CHUNK_SHIFT = 28;
+	static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+	private final IntBuffer[] moff, mto, mwt, mroff, mfrom, mrwt;
+
+	/**
+	 * Constructor for MappedCSRGraph
+	 *
+	 * @param ch
+	 *            : FileChannel - the open binary graph file
+	 * @param n
+	 *            : int - number of vertices
+	 * @param m
+	 *            : int - number of arcs
+	 * @param position
+	 *            : long - where the offset section of the forward arcs starts
+	 */
+	MappedCSRGraph(FileChannel ch, int n, int m, boolean directed, long position) throws IOException {
+		super(n, m, directed);
+		moff = map(ch, position, n + 2);
+		position += 4L * (n + 2);
+		mto = map(ch, position, m);
+		position += 4L * m;
+		mwt = map(ch, position, m);
+		position += 4L * m;
+		mroff = map(ch, position, n + 2);
+		position += 4L * (n + 2);
+		mfrom = map(ch, position, m);
+		position += 4L * m;
+		mrwt = map(ch, position, m);
+	}
+
+	/**
+	 * Constructor for the reverse of g, on the same mappings
+	 */
+	private MappedCSRGraph(MappedCSRGraph g) {
+		super(g.numNodes, g.numEdges, g.directed);
+		moff = g.mroff;
+		mto = g.mfrom;
+		mwt = g.mrwt;
+		mroff = g.moff;
+		mfrom = g.mto;
+		mrwt = g.mwt;
+	}
+
+	@Override
+	CSRGraph reversed() {
+		return new MappedCSRGraph(this);
+	}
+
+	/**
+	 * Map a section of count ints that starts at position
+	 */
+	private static IntBuffer[] map(FileChannel ch, long position, long count) throws IOException {
+		int chunks = (int) ((count + CHUNK_MASK) >>> CHUNK_SHIFT);
+		IntBuffer[] section = new IntBuffer[Math.max(chunks, 1)];
+		for (int c = 0; c < section.length; c++) {
+			long ints = Math.min(count - ((long) c << CHUNK_SHIFT), 1L << CHUNK_SHIFT);
+			MappedByteBuffer mb = ch.map(FileChannel.MapMode.READ_ONLY, position, 4 * ints);
+			section[c] = mb.order(BinaryGraph.ORDER).asIntBuffer();
+			position += 4 * ints;
+		}
+		return section;
+	}
+
+	private static int get(IntBuffer[] section, int i) {
+		return section[i >>> CHUNK_SHIFT].get(i & CHUNK_MASK);
+	}
+
+	@Override
+	int begin(int u) {
+		return get(moff, u);
+	}
+
+	@Override
+	int end(int u) {
+		return get(moff, u + 1);
+	}
+
+	@Override
+	int target(int e) {
+		return get(mto, e);
+	}
+
+	@Override
+	int weight(int e) {
+		return get(mwt, e);
+	}
+
+	@Override
+	int rbegin(int v) {
+		return get(mroff, v);
+	}
+
+	@Override
+	int rend(int v) {
+		return get(mroff, v + 1);
+	}
+
+	@Override
+	int rsource(int r) {
+		return get(mfrom, r);
+	}
+
+	@Override
+	int rweight(int r) {
+		return get(mrwt, r);
+	}
+}
@@ -0,0 +1,313 @@
+/**
+ * Operation counters and latency histograms of the solvers, turned on with
+ * -DshortestPath.metrics=true.
+ *
+ * Every hook in the solvers is written as
+ *     if (Metrics.ENABLED) Metrics.count(Metrics.Counter.RELAXATIONS);
+ * ENABLED is a static final constant, so when it is false the JIT removes the
+ * hooks and they cost nothing. When it is true the counters are LongAdders,
+ * which many threads can bump without contention.
+ *
+ * The counters are kept per Planner.Engine, so they tell which engine did the
+ * work. Plan.run sets the engine of its thread, which the hooks of the
+ * sequential solvers and the heaps count for; the parallel engines, whose
+ * work runs on pool threads, name theirs. Hooks run outside a plan, e.g. by
+ * Johnson or PointToPoint, count as "other".
+ *
+ * A phase (load, classify, solve, count paths, output) records its time in
+ * nanoseconds in a histogram of power-of-two buckets: bucket b holds the
+ * times in [2^(b-1), 2^b). The percentiles are read off the buckets, so they
+ * are upper bounds within a factor of 2. The solve phase is the whole of
+ * shortestPath.solve, so it takes in the classify phase.
+ *
+ * All values are published as the read-only attributes of the MBean
+ * ShortestPaths:type=Metrics, which also has a reset operation, so JConsole
+ * or a JMX exporter can read them while the program runs.
+ *
+ * Usage: long t = Metrics.start();
+ *        ...
+ *        Metrics.record(Metrics.Phase.SOLVE, t);
+ *        System.out.println(Metrics.report());
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import javax.management.*;
+
+public class Metrics {
+	static final boolean ENABLED = Boolean.getBoolean("shortestPath.metrics");
+	static final String OBJECT_NAME = "ShortestPaths:type=Metrics";
+
+	public enum Counter {
+		EDGE_RELAXATIONS, // edges looked at by relax
+		RELAXATIONS, // relax calls that lowered a distance
+		HEAP_REMOVES, HEAP_DECREASE_KEYS, PERCOLATE_UP_STEPS, QUEUE_PUSHES, BELLMAN_FORD_REENQUEUES, DFS_VISITS;
+	}
+
+	// counters by engine, indexed by Counter ordinal
+	private static final EnumMap<Planner.Engine, LongAdder[]> BY_ENGINE = new EnumMap<>(Planner.Engine.class);
+	private static final LongAdder[] OTHER = adders(); // hooks run outside a plan
+	private static final ThreadLocal<Planner.Engine> ENGINE = new ThreadLocal<>();
+
+	public enum Phase {
+		LOAD, CLASSIFY, SOLVE, COUNT_PATHS, OUTPUT;
+
+		final Histogram latency = new Histogram();
+	}
+
+	/**
+	 * Histogram of nanosecond times in power-of-two buckets
+	 */
+	static class Histogram {
+		private final AtomicLongArray buckets = new AtomicLongArray(64);
+		private final LongAdder count = new LongAdder(), sum = new LongAdder();
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+		void record(long nanos) {
+			nanos = Math.max(0, nanos);
+			buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos) & 63);
+			count.increment();
+			sum.add(nanos);
+			max.accumulate(nanos);
+		}
+
+		long count() {
+			return count.sum();
+		}
+
+		long mean() {
+			long c = count.sum();
+			return c == 0 ? 0 : sum.sum() / c;
+		}
+
+		long max() {
+			return max.get();
+		}
+
+		/**
+		 * @return: long - upper bound of the bucket that holds the q-quantile
+		 */
+		long percentile(double q) {
+			long c = count.sum(), seen = 0;
+			if (c == 0)
+				return 0;
+			for (int b = 0; b < 64; b++) {
+				seen += buckets.get(b);
+				if (seen >= q * c)
+					return b == 0 ? 0 : Math.min(max.get(), b == 63 ? Long.MAX_VALUE : (1L << b) - 1);
+			}
+			return max.get();
+		}
+
+		void reset() {
+			for (int b = 0; b < 64; b++)
+				buckets.set(b, 0);
+			count.reset();
+			sum.reset();
+			max.reset();
+		}
+	}
+
+	static {
+		for (Planner.Engine e : Planner.Engine.values())
+			BY_ENGINE.put(e, adders());
+		if (ENABLED)
+			register();
+	}
+
+	private static LongAdder[] adders() {
+		LongAdder[] a = new LongAdder[Counter.values().length];
+		for (int i = 0; i < a.length; i++)
+			a[i] = new LongAdder();
+		return a;
+	}
+
+	private static LongAdder[] counters(Planner.Engine e) {
+		return e == null ? OTHER : BY_ENGINE.get(e);
+	}
+
+	/**
+	 * Set the engine that the hooks of this thread count for, null for none
+	 *
+	 * @return: Planner.Engine - the engine it replaces
+	 */
+	static Planner.Engine engine(Planner.Engine e) {
+		if (!ENABLED)
+			return null;
+		Planner.Engine old = ENGINE.get();
+		ENGINE.set(e);
+		return old;
+	}
+
+	/** add 1 to a counter of the engine of this thread */
+	static void count(Counter c) {
+		counters(ENGINE.get())[c.ordinal()].increment();
+	}
+
+	/** add n to a counter of an engine, for hooks that run on pool threads */
+	static void add(Planner.Engine e, Counter c, long n) {
+		if (n != 0)
+			counters(e)[c.ordinal()].add(n);
+	}
+
+	/** a counter summed over the engines */
+	static long total(Counter c) {
+		long sum = OTHER[c.ordinal()].sum();
+		for (LongAdder[] a : BY_ENGINE.values())
+			sum += a[c.ordinal()].sum();
+		return sum;
+	}
+
+	/**
+	 * @return: long - the start time of a phase, 0 if the metrics are off
+	 */
+	static long start() {
+		return ENABLED ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Record the time of a phase that began at start()
+	 */
+	static void record(Phase p, long start) {
+		if (ENABLED)
+			p.latency.record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Record the time of a phase that was timed elsewhere
+	 */
+	static void recordNanos(Phase p, long nanos) {
+		if (ENABLED)
+			p.latency.record(nanos);
+	}
+
+	/**
+	 * All values by name, e.g. "relaxations", "delta_stepping.relaxations" or
+	 * "solve.p99_ns"
+	 */
+	public static Map<String, Long> snapshot() {
+		Map<String, Long> m = new LinkedHashMap<>();
+		for (Counter c : Counter.values())
+			m.put(c.name().toLowerCase(), total(c));
+		for (Planner.Engine e : Planner.Engine.values())
+			for (Counter c : Counter.values())
+				m.put(e.name().toLowerCase() + "." + c.name().toLowerCase(), BY_ENGINE.get(e)[c.ordinal()].sum());
+		for (Counter c : Counter.values())
+			m.put("other." + c.name().toLowerCase(), OTHER[c.ordinal()].sum());
+		for (Phase p : Phase.values()) {
+			String name = p.name().toLowerCase();
+			Histogram h = p.latency;
+			m.put(name + ".count", h.count());
+			m.put(name + ".mean_ns", h.mean());
+			m.put(name + ".p50_ns", h.percentile(0.5));
+			m.put(name + ".p99_ns", h.percentile(0.99));
+			m.put(name + ".max_ns", h.max());
+		}
+		return m;
+	}
+
+	public static void reset() {
+		for (LongAdder[] a : BY_ENGINE.values())
+			for (LongAdder x : a)
+				x.reset();
+		for (LongAdder x : OTHER)
+			x.reset();
+		for (Phase p : Phase.values())
+			p.latency.reset();
+	}
+
+	/**
+	 * The counters, in all and by the engines that have run, and the phases
+	 * that have run
+	 */
+	public static String report() {
+		StringBuilder sb = new StringBuilder("Metrics:");
+		for (Counter c : Counter.values())
+			sb.append(' ').append(c.name().toLowerCase()).append('=').append(total(c));
+		for (Planner.Engine e : Planner.Engine.values())
+			report(sb, e.name().toLowerCase(), BY_ENGINE.get(e));
+		report(sb, "other", OTHER);
+		for (Phase p : Phase.values()) {
+			Histogram h = p.latency;
+			if (h.count() > 0)
+				sb.append(String.format("%n  %-11s n=%d mean=%dus p50<=%dus p99<=%dus max=%dus", p.name().toLowerCase(),
+						h.count(), h.mean() / 1000, h.percentile(0.5) / 1000, h.percentile(0.99) / 1000,
+						h.max() / 1000));
+		}
+		return sb.toString();
+	}
+
+	/** the counters of one engine, if it has any */
+	private static void report(StringBuilder sb, String name, LongAdder[] a) {
+		StringBuilder line = new StringBuilder();
+		for (Counter c : Counter.values())
+			if (a[c.ordinal()].sum() != 0)
+				line.append(' ').append(c.name().toLowerCase()).append('=').append(a[c.ordinal()].sum());
+		if (line.length() > 0)
+			sb.append(String.format("%n  %-22s", name)).append(line);
+	}
+
+	/**
+	 * Register the MBean with the platform MBean server, if it is not there
+	 * yet
+	 */
+	static void register() {
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (!server.isRegistered(name))
+				server.registerMBean(new MBean(), name);
+		} catch (InstanceAlreadyExistsException e) {
+			// registered by another thread meanwhile
+		} catch (JMException e) {
+			throw new IllegalStateException("Cannot register " + OBJECT_NAME, e);
+		}
+	}
+
+	/**
+	 * The values of snapshot() as read-only Long attributes, and reset()
+	 */
+	static class MBean implements DynamicMBean {
+		public Object getAttribute(String attribute) throws AttributeNotFoundException {
+			Long value = snapshot().get(attribute);
+			if (value == null)
+				throw new AttributeNotFoundException(attribute);
+			return value;
+		}
+
+		public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+			throw new AttributeNotFoundException("Read-only attribute: " + attribute.getName());
+		}
+
+		public AttributeList getAttributes(String[] attributes) {
+			Map<String, Long> m = snapshot();
+			AttributeList list = new AttributeList();
+			for (String a : attributes)
+				if (m.containsKey(a))
+					list.add(new Attribute(a, m.get(a)));
+			return list;
+		}
+
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+			if (!actionName.equals("reset"))
+				throw new ReflectionException(new NoSuchMethodException(actionName));
+			reset();
+			return null;
+		}
+
+		public MBeanInfo getMBeanInfo() {
+			List<MBeanAttributeInfo> attrs = new ArrayList<>();
+			for (String name : snapshot().keySet())
+				attrs.add(new MBeanAttributeInfo(name, "java.lang.Long", name, true, false, false));
+			MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Set all counters and histograms to 0",
+					new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+			return new MBeanInfo(Metrics.class.getName(), "Shortest path solver metrics",
+					attrs.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[] { reset }, null);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ * Pairing heap of vertex names with long keys, kept in arrays indexed by name
+ * instead of node objects. insert and decreaseKey are a single link; the work
+ * is done by the two-pass merge in deleteMin.
+ *
+ */
+
+public class PairingHeap implements IntPQ {
+	long[] key;
+	int[] child; // first child, 0 if none
+	int[] sibling; // next sibling, 0 if none
+	int[] prev; // previous sibling, or the parent for a first child
+	boolean[] inHeap;
+	int[] pairs; // scratch list for the merge in deleteMin
+	int root;
+	int size;
+
+	/** Create an empty priority queue for vertices 1..n */
+	PairingHeap(int n) {
+		key = new long[n + 1];
+		child = new int[n + 1];
+		sibling = new int[n + 1];
+		prev = new int[n + 1];
+		inHeap = new boolean[n + 1];
+		pairs = new int[n];
+		root = 0;
+		size = 0;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean contains(int v) {
+		return inHeap[v];
+	}
+
+	public void clear() {
+		// walk the tree, using pairs[] as a stack
+		int top = 0;
+		if (root != 0)
+			pairs[top++] = root;
+		while (top > 0) {
+			int v = pairs[--top];
+			inHeap[v] = false;
+			for (int c = child[v]; c != 0; c = sibling[c])
+				pairs[top++] = c;
+		}
+		root = 0;
+		size = 0;
+	}
+
+	public void insert(int v, long k) {
+		key[v] = k;
+		child[v] = sibling[v] = prev[v] = 0;
+		inHeap[v] = true;
+		root = root == 0 ? v : link(root, v);
+		size++;
+	}
+
+	public int min() {
+		return root;
+	}
+
+	public int deleteMin() {
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.HEAP_REMOVES);
+		int min = root;
+		inHeap[min] = false;
+		size--;
+
+		// first pass: link the children in pairs, left to right
+		int count = 0;
+		int c = child[min];
+		while (c != 0) {
+			int a = c;
+			int b = sibling[a];
+			c = b == 0 ? 0 : sibling[b];
+			sibling[a] = prev[a] = 0;
+			if (b != 0) {
+				sibling[b] = prev[b] = 0;
+				a = link(a, b);
+			}
+			pairs[count++] = a;
+		}
+		// second pass: merge the pairs, right to left
+		root = 0;
+		if (count > 0) {
+			root = pairs[count - 1];
+			for (int i = count - 2; i >= 0; i--)
+				root = link(pairs[i], root);
+		}
+		child[min] = 0;
+		return min;
+	}
+
+	public void decreaseKey(int v, long k) {
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.HEAP_DECREASE_KEYS);
+		key[v] = k;
+		if (v == root)
+			return;
+		// cut the subtree of v out of its parent's list of children
+		int p = prev[v];
+		if (child[p] == v)
+			child[p] = sibling[v];
+		else
+			sibling[p] = sibling[v];
+		if (sibling[v] != 0)
+			prev[sibling[v]] = p;
+		sibling[v] = prev[v] = 0;
+		root = link(root, v);
+	}
+
+	/** make the root with the larger key the first child of the other one */
+	int link(int a, int b) {
+		if (key[b] < key[a]) {
+			int t = a;
+			a = b;
+			b = t;
+		}
+		sibling[b] = child[a];
+		if (child[a] != 0)
+			prev[child[a]] = b;
+		prev[b] = a;
+		child[a] = b;
+		return a;
+	}
+}
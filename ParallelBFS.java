@@ -0,0 +1,257 @@
+/**
+ * Level-synchronous parallel BFS for CSR graphs with uniform non-negative
+ * weights, switching between top-down and bottom-up steps (Beamer, Asanovic
+ * and Patterson, "Direction-Optimizing Breadth-First Search").
+ *
+ * The frontier, the next frontier and the visited set are bitmaps of longs. A
+ * top-down step scans the arcs of the frontier and claims unvisited targets
+ * with an atomic OR on the visited bitmap. A bottom-up step lets every
+ * unvisited vertex scan its reverse arcs for a parent in the frontier, which
+ * touches far fewer arcs once the frontier holds a large part of the graph.
+ *
+ * The distances are the same as shortestPath.BFS. The parent of a vertex is
+ * its first in-neighbour, in reverse arc order, on the level above it, so the
+ * tree is the same on every run but can differ from the one BFS builds.
+ *
+ * The Metrics hooks count for Planner.Engine.PARALLEL_BFS: arcs looked at,
+ * and vertices claimed for the next frontier as relaxations and pushes.
+ *
+ */
+
+import java.lang.invoke.*;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ParallelBFS {
+	private static final VarHandle AA = MethodHandles.arrayElementVarHandle(long[].class);
+	static final int ALPHA = 14; // go bottom-up when frontier arcs > unvisited arcs / ALPHA
+	static final int BETA = 24; // go top-down when frontier size < n / BETA
+	static final int WORDS_PER_TASK = 64;
+
+	private final CSRGraph g;
+	private final ForkJoinPool pool;
+	private final int words;
+	private final int[] level; // -1 if not reached
+	private long[] frontier, next;
+	private final long[] visited;
+	private final LongAdder nextCount = new LongAdder();
+	private final LongAdder nextArcs = new LongAdder();
+	private int currentLevel;
+
+	private ParallelBFS(CSRGraph g, ForkJoinPool pool) {
+		this.g = g;
+		this.pool = pool;
+		words = (g.numNodes >> 6) + 1; // bit v for vertex v, bit 0 unused
+		level = new int[g.numNodes + 1];
+		Arrays.fill(level, -1);
+		frontier = new long[words];
+		next = new long[words];
+		visited = new long[words];
+	}
+
+	/**
+	 * Parallel BFS from src on the common ForkJoinPool
+	 *
+	 * @param g:
+	 *            CSRGraph - with uniform non-negative weights
+	 * @param src:
+	 *            int - source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 */
+	public static void BFS(CSRGraph g, int src, SearchState s) {
+		BFS(g, src, s, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Parallel BFS from src
+	 *
+	 * @param g:
+	 *            CSRGraph - with uniform non-negative weights
+	 * @param src:
+	 *            int - source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 * @param pool:
+	 *            ForkJoinPool - runs the steps
+	 */
+	public static void BFS(CSRGraph g, int src, SearchState s, ForkJoinPool pool) {
+		if (!(g.uniformW && g.nonNegative))
+			throw new IllegalArgumentException("BFS needs uniform non-negative edge weights");
+		new ParallelBFS(g, pool).run(src, s);
+	}
+
+	private void run(int src, SearchState s) {
+		level[src] = 0;
+		setBit(frontier, src);
+		setBit(visited, src);
+		long frontierCount = 1;
+		long frontierArcs = g.end(src) - g.begin(src);
+		long unvisitedArcs = g.numEdges - frontierArcs;
+		boolean bottomUp = false;
+
+		for (currentLevel = 0; frontierCount > 0; currentLevel++) {
+			if (!bottomUp && frontierArcs > unvisitedArcs / ALPHA)
+				bottomUp = true;
+			else if (bottomUp && frontierCount < g.numNodes / BETA)
+				bottomUp = false;
+
+			Arrays.fill(next, 0);
+			nextCount.reset();
+			nextArcs.reset();
+			pool.invoke(new Step(bottomUp ? Step.BOTTOM_UP : Step.TOP_DOWN, 0, words));
+			long[] t = frontier;
+			frontier = next;
+			next = t;
+			frontierCount = nextCount.sum();
+			frontierArcs = nextArcs.sum();
+			unvisitedArcs -= frontierArcs;
+		}
+
+		int[] parent = new int[g.numNodes + 1];
+		pool.invoke(new ParentStep(parent, 1, g.numNodes + 1));
+
+		// all arcs have the same weight, so distance = level * weight
+		int w = g.numEdges > 0 ? g.weight(0) : 0;
+		s.initialize(src);
+		for (int v = 1; v <= g.numNodes; v++) {
+			if (level[v] > 0) {
+				s.setDistance(v, level[v] * w);
+				s.setParent(v, parent[v]);
+				s.setSeen(v, true);
+			}
+		}
+		s.setSeen(src, true);
+	}
+
+	private static boolean isSet(long[] bits, int v) {
+		return (bits[v >>> 6] & (1L << v)) != 0;
+	}
+
+	private static void setBit(long[] bits, int v) {
+		bits[v >>> 6] |= 1L << v;
+	}
+
+	/**
+	 * One BFS step over the vertices of words [lo, hi)
+	 */
+	private class Step extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		static final int TOP_DOWN = 0, BOTTOM_UP = 1;
+		final int kind, lo, hi;
+
+		Step(int kind, int lo, int hi) {
+			this.kind = kind;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute() {
+			if (hi - lo > WORDS_PER_TASK) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new Step(kind, lo, mid), new Step(kind, mid, hi));
+			} else if (kind == TOP_DOWN)
+				topDown();
+			else
+				bottomUp();
+		}
+
+		/** claim the unvisited targets of the frontier vertices in range */
+		private void topDown() {
+			long count = 0, arcs = 0, looked = 0;
+			for (int k = lo; k < hi; k++) {
+				for (long bits = frontier[k]; bits != 0; bits &= bits - 1) {
+					int u = (k << 6) | Long.numberOfTrailingZeros(bits);
+					looked += g.end(u) - g.begin(u);
+					for (int e = g.begin(u); e < g.end(u); e++) {
+						int v = g.target(e);
+						long bit = 1L << v;
+						if ((visited[v >>> 6] & bit) != 0)
+							continue;
+						long old = (long) AA.getAndBitwiseOr(visited, v >>> 6, bit);
+						if ((old & bit) == 0) {
+							level[v] = currentLevel + 1;
+							AA.getAndBitwiseOr(next, v >>> 6, bit);
+							count++;
+							arcs += g.end(v) - g.begin(v);
+						}
+					}
+				}
+			}
+			nextCount.add(count);
+			nextArcs.add(arcs);
+			if (Metrics.ENABLED)
+				counted(looked, count);
+		}
+
+		/** look for a frontier parent of every unvisited vertex in range */
+		private void bottomUp() {
+			long count = 0, arcs = 0, looked = 0;
+			for (int k = lo; k < hi; k++) {
+				for (int b = 0; b < 64; b++) {
+					int v = (k << 6) | b;
+					if (v == 0 || v > g.numNodes || (visited[k] & (1L << b)) != 0)
+						continue;
+					for (int r = g.rbegin(v); r < g.rend(v); r++) {
+						looked++;
+						if (isSet(frontier, g.rsource(r))) {
+							// this task owns word k, so plain writes are safe
+							level[v] = currentLevel + 1;
+							visited[k] |= 1L << b;
+							next[k] |= 1L << b;
+							count++;
+							arcs += g.end(v) - g.begin(v);
+							break;
+						}
+					}
+				}
+			}
+			nextCount.add(count);
+			nextArcs.add(arcs);
+			if (Metrics.ENABLED)
+				counted(looked, count);
+		}
+
+		private void counted(long looked, long claimed) {
+			Metrics.add(Planner.Engine.PARALLEL_BFS, Metrics.Counter.EDGE_RELAXATIONS, looked);
+			Metrics.add(Planner.Engine.PARALLEL_BFS, Metrics.Counter.RELAXATIONS, claimed);
+			Metrics.add(Planner.Engine.PARALLEL_BFS, Metrics.Counter.QUEUE_PUSHES, claimed);
+		}
+	}
+
+	/**
+	 * Picks the parent of the reached vertices in [lo, hi)
+	 */
+	private class ParentStep extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final int[] parent;
+		final int lo, hi;
+
+		ParentStep(int[] parent, int lo, int hi) {
+			this.parent = parent;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute() {
+			if (hi - lo > WORDS_PER_TASK << 6) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new ParentStep(parent, lo, mid), new ParentStep(parent, mid, hi));
+				return;
+			}
+			for (int v = lo; v < hi; v++) {
+				if (level[v] <= 0)
+					continue;
+				for (int r = g.rbegin(v); r < g.rend(v); r++) {
+					if (level[g.rsource(r)] == level[v] - 1) {
+						parent[v] = g.rsource(r);
+						break;
+					}
+				}
+			}
+		}
+	}
+}
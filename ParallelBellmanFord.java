@@ -0,0 +1,280 @@
+/**
+ * Frontier-based parallel Bellman-Ford for CSR graphs that may have negative
+ * edges.
+ *
+ * Every round relaxes the arcs of all vertices whose distance went down in the
+ * round before, in parallel on a ForkJoinPool. A relaxation is an atomic
+ * min-update of a long that packs the distance (high half) with the parent
+ * (low half), as in DeltaStepping.
+ *
+ * A cycle in the graph of parent pointers can only come from a negative cycle,
+ * and it shows up long before a vertex has been improved n times. So whenever
+ * about n relaxations have succeeded since the last look, the parent graph is
+ * walked (every vertex towards the source, marking the walk) and the first
+ * cycle found is reported. If the parents never close a cycle, n rounds are
+ * still the last resort, as in bellmanFord.
+ *
+ * The Metrics hooks count for Planner.Engine.PARALLEL_BELLMAN_FORD, like those
+ * of bellmanFord: arcs looked at, distances lowered, vertices that join the
+ * next frontier and, of those, the ones that were in a frontier before.
+ *
+ */
+
+import java.lang.invoke.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class ParallelBellmanFord {
+	private static final VarHandle LA = MethodHandles.arrayElementVarHandle(long[].class);
+	private static final VarHandle IA = MethodHandles.arrayElementVarHandle(int[].class);
+	private static final long UNREACHED = (long) SearchState.INF << 32;
+	static final int THRESHOLD = 256; // frontier vertices relaxed by one task
+
+	private final CSRGraph g;
+	private final ForkJoinPool pool;
+	private final long[] packed; // distance << 32 | parent, for every vertex
+	private final int[] reached; // vertices with a finite distance
+	private final AtomicInteger numReached = new AtomicInteger();
+	private final int[] mark; // last round in which a vertex joined next
+	private int[] next; // frontier of the coming round
+	private final AtomicInteger numNext = new AtomicInteger();
+	private final LongAdder relaxations = new LongAdder();
+	private final LongAdder reenqueues = new LongAdder(); // only with Metrics.ENABLED
+	private int round;
+
+	private ParallelBellmanFord(CSRGraph g, ForkJoinPool pool) {
+		this.g = g;
+		this.pool = pool;
+		packed = new long[g.numNodes + 1];
+		Arrays.fill(packed, UNREACHED);
+		reached = new int[g.numNodes];
+		mark = new int[g.numNodes + 1];
+		next = new int[g.numNodes];
+	}
+
+	/**
+	 * Parallel Bellman-Ford from src on the common ForkJoinPool
+	 *
+	 * @param g:
+	 *            CSRGraph
+	 * @param src:
+	 *            int - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 * @return: true if there is no negative cycle, else false
+	 */
+	public static boolean bellmanFord(CSRGraph g, int src, SearchState s) {
+		return bellmanFord(g, src, s, ForkJoinPool.commonPool(), null);
+	}
+
+	/**
+	 * Parallel Bellman-Ford from src
+	 *
+	 * @param g:
+	 *            CSRGraph
+	 * @param src:
+	 *            int - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents; those
+	 *            found so far if there is a negative cycle
+	 * @param pool:
+	 *            ForkJoinPool - runs the rounds
+	 * @param cycle:
+	 *            LinkedList<Integer> - receives the arcs of a negative cycle,
+	 *            in the shape printCycle(CSRGraph, LinkedList) prints. May be
+	 *            null
+	 * @return: true if there is no negative cycle, else false
+	 */
+	public static boolean bellmanFord(CSRGraph g, int src, SearchState s, ForkJoinPool pool,
+			LinkedList<Integer> cycle) {
+		return new ParallelBellmanFord(g, pool).run(src, s, cycle);
+	}
+
+	private boolean run(int src, SearchState s, LinkedList<Integer> cycle) {
+		// like bellmanFord, s holds this query even if it stops at a cycle
+		s.initialize(src);
+		packed[src] = 0;
+		reached[numReached.getAndIncrement()] = src;
+		int[] frontier = new int[g.numNodes];
+		frontier[0] = src;
+		int size = 1;
+		long sinceCheck = 0;
+
+		for (round = 1; size > 0; round++) {
+			// if the frontier is still not empty after n rounds there is a
+			// negative cycle
+			if (round > g.numNodes) {
+				publish(s);
+				return negativeCycle(cycle);
+			}
+			numNext.set(0);
+			relaxations.reset();
+			pool.invoke(new RelaxTask(frontier, 0, size));
+			int[] t = frontier;
+			frontier = next;
+			next = t;
+			size = numNext.get();
+			if (Metrics.ENABLED)
+				Metrics.add(Planner.Engine.PARALLEL_BELLMAN_FORD, Metrics.Counter.QUEUE_PUSHES, size);
+
+			sinceCheck += relaxations.sum();
+			if (sinceCheck >= g.numNodes) {
+				sinceCheck = 0;
+				if (findParentCycle(cycle)) {
+					publish(s);
+					return false;
+				}
+			}
+		}
+		publish(s);
+		return true;
+	}
+
+	/**
+	 * Copy the distances and parents of the reached vertices to s
+	 */
+	private void publish(SearchState s) {
+		if (Metrics.ENABLED)
+			Metrics.add(Planner.Engine.PARALLEL_BELLMAN_FORD, Metrics.Counter.BELLMAN_FORD_REENQUEUES,
+					reenqueues.sum());
+		for (int k = 0; k < numReached.get(); k++) {
+			int v = reached[k];
+			s.setDistance(v, distance(v));
+			s.setParent(v, parent(v));
+		}
+	}
+
+	private int distance(int v) {
+		return (int) ((long) LA.getVolatile(packed, v) >> 32);
+	}
+
+	private int parent(int v) {
+		return (int) packed[v];
+	}
+
+	/**
+	 * Relaxes the arcs of frontier[lo..hi), splitting the range until it is
+	 * small
+	 */
+	private class RelaxTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final int[] frontier;
+		final int lo, hi;
+
+		RelaxTask(int[] frontier, int lo, int hi) {
+			this.frontier = frontier;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute() {
+			if (hi - lo > THRESHOLD) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new RelaxTask(frontier, lo, mid), new RelaxTask(frontier, mid, hi));
+				return;
+			}
+			long count = 0, looked = 0;
+			for (int k = lo; k < hi; k++) {
+				int u = frontier[k];
+				int du = distance(u);
+				looked += g.end(u) - g.begin(u);
+				for (int e = g.begin(u); e < g.end(u); e++)
+					if (relax(u, g.target(e), du + g.weight(e)))
+						count++;
+			}
+			relaxations.add(count);
+			if (Metrics.ENABLED) {
+				Metrics.add(Planner.Engine.PARALLEL_BELLMAN_FORD, Metrics.Counter.EDGE_RELAXATIONS, looked);
+				Metrics.add(Planner.Engine.PARALLEL_BELLMAN_FORD, Metrics.Counter.RELAXATIONS, count);
+			}
+		}
+	}
+
+	/**
+	 * Atomic min-update of the distance of v to d, with u as its parent. v
+	 * joins the next frontier the first time it improves in a round.
+	 */
+	private boolean relax(int u, int v, int d) {
+		long cur = (long) LA.getVolatile(packed, v);
+		long nxt = (long) d << 32 | (u & 0xffffffffL);
+		while ((int) (cur >> 32) > d) {
+			if (LA.compareAndSet(packed, v, cur, nxt)) {
+				if (cur == UNREACHED)
+					reached[numReached.getAndIncrement()] = v;
+				int m = (int) IA.getVolatile(mark, v);
+				if (m != round && IA.compareAndSet(mark, v, m, round)) {
+					next[numNext.getAndIncrement()] = v;
+					if (Metrics.ENABLED && m != 0)
+						reenqueues.increment();
+				}
+				return true;
+			}
+			cur = (long) LA.getVolatile(packed, v);
+		}
+		return false;
+	}
+
+	/**
+	 * Walk from every reached vertex towards the source along the parents.
+	 * Each walk marks its vertices with its own number; meeting a mark of the
+	 * same walk closes a cycle.
+	 *
+	 * @return: true if the parent graph has a cycle, which is then put in
+	 *          cycle
+	 */
+	private boolean findParentCycle(LinkedList<Integer> cycle) {
+		int[] walk = new int[g.numNodes + 1];
+		int n = numReached.get();
+		for (int k = 0; k < n; k++) {
+			int v = reached[k];
+			int id = k + 1;
+			while (v != 0 && walk[v] == 0) {
+				walk[v] = id;
+				v = parent(v);
+			}
+			if (v != 0 && walk[v] == id) {
+				if (cycle != null)
+					addCycle(v, cycle);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Used when the rounds run out before the parents close a cycle; one
+	 * still has to be there
+	 */
+	private boolean negativeCycle(LinkedList<Integer> cycle) {
+		if (cycle != null && !findParentCycle(cycle))
+			cycle.clear();
+		return false;
+	}
+
+	/**
+	 * Put the arcs of the parent cycle through v in cycle, each arc after the
+	 * one it leads to, like the list DFSVisit fills
+	 */
+	private void addCycle(int v, LinkedList<Integer> cycle) {
+		int x = v;
+		do {
+			int p = parent(x);
+			cycle.add(cheapestArc(p, x));
+			x = p;
+		} while (x != v);
+	}
+
+	/**
+	 * The arc p -> x of least weight; the parent pointer does not keep which
+	 * arc was used, and the lightest one keeps the cycle negative
+	 */
+	private int cheapestArc(int p, int x) {
+		int best = -1;
+		for (int e = g.begin(p); e < g.end(p); e++)
+			if (g.target(e) == x && (best < 0 || g.weight(e) < g.weight(best)))
+				best = e;
+		return best;
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ * Kahn's topological sort of a whole CSR graph, one level at a time in
+ * parallel.
+ *
+ * Level 0 holds the vertices without incoming arcs. The vertices of a level
+ * are split over a ForkJoinPool; each task removes their arcs by atomically
+ * decrementing the in-degree of the targets, and the task that brings an
+ * in-degree to 0 appends that vertex to the next level. The levels are laid
+ * out one after the other in the result, so it is a topological order. Within
+ * a level the order depends on the scheduling.
+ *
+ */
+
+import java.lang.invoke.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelTopologicalSort {
+	private static final VarHandle IA = MethodHandles.arrayElementVarHandle(int[].class);
+	static final int THRESHOLD = 1024; // level vertices handled by one task
+
+	private final CSRGraph g;
+	private final int[] inDegree;
+	private final int[] order;
+	private final AtomicInteger size = new AtomicInteger();
+
+	private ParallelTopologicalSort(CSRGraph g) {
+		this.g = g;
+		inDegree = new int[g.numNodes + 1];
+		order = new int[g.numNodes];
+	}
+
+	/**
+	 * Topological order of g on the common ForkJoinPool
+	 *
+	 * @param g:
+	 *            CSRGraph
+	 * @return: int[] - all the vertices in topological order, null if g has a
+	 *          cycle
+	 */
+	public static int[] order(CSRGraph g) {
+		return order(g, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Topological order of g
+	 *
+	 * @param g:
+	 *            CSRGraph
+	 * @param pool:
+	 *            ForkJoinPool - runs the levels
+	 * @return: int[] - all the vertices in topological order, null if g has a
+	 *          cycle
+	 */
+	public static int[] order(CSRGraph g, ForkJoinPool pool) {
+		int[] order = new ParallelTopologicalSort(g).run(pool);
+		g.setAcyclic(order != null);
+		return order;
+	}
+
+	private int[] run(ForkJoinPool pool) {
+		int n = 0;
+		for (int v = 1; v <= g.numNodes; v++) {
+			inDegree[v] = g.rend(v) - g.rbegin(v);
+			if (inDegree[v] == 0)
+				order[n++] = v;
+		}
+		size.set(n);
+		// order[lo..hi) is the current level; the next one is appended
+		// behind it
+		for (int lo = 0, hi = n; lo < hi; lo = hi, hi = size.get())
+			pool.invoke(new LevelTask(lo, hi));
+		return size.get() == g.numNodes ? order : null;
+	}
+
+	/**
+	 * Removes the arcs of order[lo..hi), splitting the range until it is small
+	 */
+	private class LevelTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final int lo, hi;
+
+		LevelTask(int lo, int hi) {
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute() {
+			if (hi - lo > THRESHOLD) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new LevelTask(lo, mid), new LevelTask(mid, hi));
+				return;
+			}
+			for (int k = lo; k < hi; k++) {
+				int u = order[k];
+				for (int e = g.begin(u); e < g.end(u); e++) {
+					int v = g.target(e);
+					if ((int) IA.getAndAdd(inDegree, v, -1) == 1)
+						order[size.getAndIncrement()] = v;
+				}
+			}
+		}
+	}
+}
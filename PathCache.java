@@ -0,0 +1,176 @@
+/**
+ * Bounded cache of shortest path trees of one Graph, for workloads that ask
+ * for the same sources again and again.
+ *
+ * A tree is kept as one long per vertex that packs the distance (high half)
+ * with the parent (low half). Entries are keyed by the source and the version
+ * of the graph they were computed on; every addEdge, addDirectedEdge and
+ * setWeight bumps the version, so a tree of an older graph is never handed
+ * out. When the trees take more than the memory budget, the least recently
+ * used ones are evicted.
+ *
+ * The methods are safe to call from many threads. A miss is solved outside
+ * the lock, so two threads that miss on the same source may both solve it.
+ *
+ * Usage: PathCache cache = new PathCache(g, 256L << 20);
+ *        PathCache.Tree t = cache.get(src);
+ */
+
+import java.util.*;
+
+public class PathCache {
+	static final long ENTRY_OVERHEAD = 96; // bytes of a Tree and its map entry, besides the array
+
+	private final Graph g;
+	private final long budget; // bytes
+	private final LinkedHashMap<Long, Tree> trees = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes; // bytes used by the trees in the cache
+	private int cachedVersion; // version of the graph of the cached trees
+	private long hits, misses, evictions, invalidations;
+
+	/**
+	 * Shortest path tree from one source
+	 */
+	public static class Tree {
+		public final int source;
+		public final Algorithm algorithm; // null if there is a negative cycle
+		private final long[] packed; // distance << 32 | parent, by vertex
+
+		Tree(int source, Algorithm algorithm, long[] packed) {
+			this.source = source;
+			this.algorithm = algorithm;
+			this.packed = packed;
+		}
+
+		/** distance of v from the source, SearchState.INF if not reached */
+		public int distance(int v) {
+			return packed == null ? SearchState.INF : (int) (packed[v] >> 32);
+		}
+
+		/** parent of v in the tree, 0 if it has none */
+		public int parent(int v) {
+			return packed == null ? 0 : (int) packed[v];
+		}
+
+		long size() {
+			return ENTRY_OVERHEAD + (packed == null ? 0 : 8L * packed.length);
+		}
+	}
+
+	/**
+	 * Constructor for PathCache
+	 *
+	 * @param g
+	 *            : Graph
+	 * @param budget
+	 *            : long - bytes the cached trees may take
+	 */
+	PathCache(Graph g, long budget) {
+		this.g = g;
+		this.budget = budget;
+		cachedVersion = g.version();
+	}
+
+	/**
+	 * Shortest path tree from src on the current version of the graph, from
+	 * the cache if it is there
+	 *
+	 * @param src:
+	 *            int - Source
+	 * @return: Tree
+	 */
+	public Tree get(int src) {
+		int version = g.version();
+		Long key = (long) version << 32 | (src & 0xffffffffL);
+		synchronized (this) {
+			dropStale(version);
+			// a thread that read the version before a change does not look up
+			Tree t = version == cachedVersion ? trees.get(key) : null;
+			if (t != null) {
+				hits++;
+				return t;
+			}
+			misses++;
+		}
+
+		Tree t = solve(src);
+		synchronized (this) {
+			// a tree of a graph that changed while it was solved is not kept
+			dropStale(g.version());
+			if (cachedVersion == version && t.size() <= budget && !trees.containsKey(key)) {
+				trees.put(key, t);
+				bytes += t.size();
+				evict();
+			}
+		}
+		return t;
+	}
+
+	private Tree solve(int src) {
+		CSRGraph csr = g.csr();
+		SearchState s = new SearchState(csr.numNodes);
+		Algorithm a = shortestPath.solve(csr, src, s);
+		if (a == null)
+			return new Tree(src, null, null);
+		long[] packed = new long[csr.numNodes + 1];
+		for (int v = 0; v <= csr.numNodes; v++)
+			packed[v] = (long) s.distance(v) << 32 | (s.parent(v) & 0xffffffffL);
+		return new Tree(src, a, packed);
+	}
+
+	/**
+	 * Forget every tree if the graph has changed since they were cached. An
+	 * older version than theirs changes nothing
+	 */
+	private void dropStale(int version) {
+		if (version > cachedVersion) {
+			invalidations += trees.size();
+			trees.clear();
+			bytes = 0;
+			cachedVersion = version;
+		}
+	}
+
+	/**
+	 * Evict the least recently used trees until the budget is kept
+	 */
+	private void evict() {
+		Iterator<Tree> it = trees.values().iterator();
+		while (bytes > budget && it.hasNext()) {
+			bytes -= it.next().size();
+			it.remove();
+			evictions++;
+		}
+	}
+
+	public synchronized long hits() {
+		return hits;
+	}
+
+	public synchronized long misses() {
+		return misses;
+	}
+
+	/** trees evicted to keep the budget */
+	public synchronized long evictions() {
+		return evictions;
+	}
+
+	/** trees dropped because the graph changed */
+	public synchronized long invalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * Drop all trees; the counters are kept
+	 */
+	public synchronized void clear() {
+		trees.clear();
+		bytes = 0;
+	}
+
+	public synchronized String toString() {
+		return "Cache: " + hits + " hits, " + misses + " misses, " + evictions + " evictions, " + invalidations
+				+ " invalidations, " + trees.size() + " trees, " + bytes + " bytes.";
+	}
+}
@@ -0,0 +1,403 @@
+/**
+ * Cost-based choice of the shortest path engine for a CSRGraph, in place of
+ * the fixed if/else chain of shortestPath.solve.
+ *
+ * The properties of a graph (weight range, negative arcs, strongly connected
+ * components and so acyclicity, density) are worked out once, by one pass
+ * over the arcs and one SCC pass, and cached on the graph. With more than one
+ * thread a parallel Kahn sort (ParallelTopologicalSort) goes first; when it
+ * finds the graph acyclic, its order is the DAG order and the sequential SCC
+ * pass is skipped, as every component is then one vertex. The number of
+ * vertices reached from the source is left out: it changes with the source,
+ * and finding it costs as much as a BFS. A plan gives every engine an
+ * estimated cost in arc scans, infinite for the engines that do not apply,
+ * and picks the cheapest:
+ *   BFS                 n + m                      equal non-negative weights
+ *   DAG                 n + m                      acyclic, in the SCC order
+ *   DIJKSTRA_BINARY     m + n log n                non-negative weights
+ *   DIJKSTRA_RADIX      m + n (4 + log(W+1))       non-negative weights
+ *   DIJKSTRA_DIAL       m + n + W sqrt(n) / 20     non-negative, up to W
+ *   SCC_HYBRID          n + m + the above per      negative arcs on a cycle;
+ *                       strongly connected component, Bellman-Ford only in
+ *                       the components with a negative arc
+ *   GOLDBERG_RADZIK     10 m + n                   negative arcs
+ *   COST_SCALING        m + n log n + 6 B (n + m)  negative arcs, B-bit weights
+ *   BELLMAN_FORD        n + m (2 + log n / log(1+d))  anything
+ * and, when more than one thread may be used, PARALLEL_BFS, DELTA_STEPPING and
+ * PARALLEL_BELLMAN_FORD at twice the cost of their sequential engine divided
+ * by the threads. The term W sqrt(n) / 20 stands for the empty buckets Dial's
+ * queue walks past: a distance of up to W/2 per hop over about sqrt(n) hops,
+ * at about a twentieth of the cost of an arc. Bellman-Ford takes about log n /
+ * log(1+d) rounds on a graph of d arcs per vertex, where Goldberg-Radzik scans
+ * each arc about 10 times whatever d is, so the first wins on dense graphs and
+ * the second on sparse ones. Cost scaling runs B rounds of Goldberg-Radzik
+ * from all the vertices and a Dijkstra search, so it only pays off on graphs
+ * that are hard for Goldberg-Radzik. A tie goes to the engine that comes
+ * first in Engine, where BELLMAN_FORD comes after the other sequential
+ * engines. The constants come from timing the heaps on generated graphs;
+ * they are meant to rank the engines, not to predict times.
+ *
+ * Usage: Planner.Plan plan = Planner.plan(g);
+ *        System.out.println(plan.explain());
+ *        Algorithm a = plan.run(g, src, s);
+ */
+
+import java.util.*;
+
+public class Planner {
+	static final long MAX_DIAL_WEIGHT = DialHeap.MAX_BUCKETS / 2;
+
+	public enum Engine {
+		BFS(Algorithm.BFS), PARALLEL_BFS(Algorithm.BFS), DAG(Algorithm.DAG), DIJKSTRA_BINARY(
+				Algorithm.DIJKSTRA), DIJKSTRA_RADIX(Algorithm.DIJKSTRA), DIJKSTRA_DIAL(
+						Algorithm.DIJKSTRA), DELTA_STEPPING(Algorithm.DELTA_STEPPING), SCC_HYBRID(
+								Algorithm.SCC_HYBRID), GOLDBERG_RADZIK(Algorithm.GOLDBERG_RADZIK), COST_SCALING(
+										Algorithm.COST_SCALING), BELLMAN_FORD(
+												Algorithm.BELLMAN_FORD), PARALLEL_BELLMAN_FORD(Algorithm.BELLMAN_FORD);
+
+		public final Algorithm algorithm;
+
+		Engine(Algorithm algorithm) {
+			this.algorithm = algorithm;
+		}
+	}
+
+	/**
+	 * Properties of a graph that the plans depend on
+	 */
+	public static class Properties {
+		public final int numNodes, numEdges;
+		public final boolean uniformW, nonNegative, acyclic;
+		public final int minWeight, maxWeight;
+		public final int negativeArcs;
+		public final int maxOutDegree;
+		public final int components, largestComponent;
+		final SCC scc; // null if the parallel sort found the graph acyclic
+		final int[] topOrder; // all the vertices in topological order, null if cyclic
+		final SCCHybrid hybrid; // null unless the graph has negative arcs and a cycle
+
+		Properties(CSRGraph g, int parallelism) {
+			numNodes = g.numNodes;
+			numEdges = g.numEdges;
+			int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE, negative = 0, degree = 0;
+			for (int u = 1; u <= g.numNodes; u++) {
+				degree = Math.max(degree, g.end(u) - g.begin(u));
+				for (int e = g.begin(u); e < g.end(u); e++) {
+					int w = g.weight(e);
+					min = Math.min(min, w);
+					max = Math.max(max, w);
+					if (w < 0)
+						negative++;
+				}
+			}
+			minWeight = numEdges == 0 ? 0 : min;
+			maxWeight = numEdges == 0 ? 0 : max;
+			negativeArcs = negative;
+			maxOutDegree = degree;
+			nonNegative = negative == 0;
+			uniformW = minWeight == maxWeight;
+
+			int[] order = parallelism > 1 ? ParallelTopologicalSort.order(g) : null;
+			if (order != null) {
+				scc = null;
+				acyclic = true;
+				topOrder = order;
+				components = numNodes;
+				largestComponent = Math.min(1, numNodes);
+				hybrid = null;
+				return;
+			}
+			scc = new SCC(g);
+			acyclic = scc.acyclic();
+			g.setAcyclic(acyclic);
+			topOrder = acyclic ? scc.order() : null;
+			components = scc.count;
+			int largest = 0;
+			for (int c = 0; c < scc.count; c++)
+				largest = Math.max(largest, scc.size(c));
+			largestComponent = largest;
+			hybrid = nonNegative || acyclic ? null : new SCCHybrid(g, scc);
+		}
+
+		/** arcs per vertex */
+		public double density() {
+			return numNodes == 0 ? 0 : (double) numEdges / numNodes;
+		}
+
+		public String toString() {
+			return String.format("%d vertices, %d arcs (%.1f per vertex, max out-degree %d), weights %d..%d"
+					+ " (%d negative), %s, %d strongly connected components (largest %d)", numNodes, numEdges,
+					density(), maxOutDegree, minWeight, maxWeight, negativeArcs, acyclic ? "acyclic" : "cyclic",
+					components, largestComponent);
+		}
+	}
+
+	/**
+	 * The engine chosen for a graph, with the estimated costs of all engines
+	 */
+	public static class Plan {
+		public final Engine engine;
+		public final String reason;
+		public final Properties properties;
+		public final int parallelism;
+		private final double[] cost; // by engine ordinal, infinite if it does not apply
+		private final String[] why; // why an engine does not apply
+
+		Plan(Properties properties, int parallelism, double[] cost, String[] why) {
+			this.properties = properties;
+			this.parallelism = parallelism;
+			this.cost = cost;
+			this.why = why;
+			// a tie goes to the engine that comes first
+			Engine best = null, second = null;
+			for (Engine e : Engine.values()) {
+				if (best == null || cost[e.ordinal()] < cost[best.ordinal()])
+					best = e;
+			}
+			for (Engine e : Engine.values()) {
+				if (e != best && (second == null || cost[e.ordinal()] < cost[second.ordinal()]))
+					second = e;
+			}
+			engine = best;
+			if (cost[second.ordinal()] == Double.POSITIVE_INFINITY)
+				reason = property(best) + "; no other engine applies";
+			else
+				reason = String.format("%s; estimated %.3g arc scans against %.3g for %s", property(best),
+						cost[best.ordinal()], cost[second.ordinal()], second);
+		}
+
+		private String property(Engine e) {
+			Properties p = properties;
+			switch (e) {
+			case BFS:
+			case PARALLEL_BFS:
+				return "all weights are " + p.minWeight;
+			case DAG:
+				return "the graph is acyclic";
+			case SCC_HYBRID:
+				return String.format("%d negative arcs, %d strongly connected components (largest %d)", p.negativeArcs,
+						p.components, p.largestComponent);
+			case GOLDBERG_RADZIK:
+				return String.format("%d negative arcs, %.1f arcs per vertex", p.negativeArcs, p.density());
+			case COST_SCALING:
+				return String.format("%d negative arcs, weights %d..%d", p.negativeArcs, p.minWeight, p.maxWeight);
+			case BELLMAN_FORD:
+			case PARALLEL_BELLMAN_FORD:
+				return String.format("%d negative arcs on %s graph", p.negativeArcs, p.acyclic ? "an acyclic" : "a cyclic");
+			default:
+				return "weights are non-negative, up to " + p.maxWeight;
+			}
+		}
+
+		/** estimated cost of an engine in arc scans, infinite if it does not apply */
+		public double cost(Engine e) {
+			return cost[e.ordinal()];
+		}
+
+		/**
+		 * Run the plan
+		 *
+		 * @param g:
+		 *            CSRGraph - the graph it was made for
+		 * @param src:
+		 *            int - Source
+		 * @param s:
+		 *            SearchState - receives the distances and parents
+		 * @return: Algorithm - the algorithm used, null if the graph has a
+		 *          negative cycle
+		 */
+		public Algorithm run(CSRGraph g, int src, SearchState s) {
+			// the metrics hooks of this thread count for the engine
+			Engine outer = Metrics.engine(engine);
+			try {
+				return runEngine(g, src, s);
+			} finally {
+				Metrics.engine(outer);
+			}
+		}
+
+		private Algorithm runEngine(CSRGraph g, int src, SearchState s) {
+			switch (engine) {
+			case BFS:
+				shortestPath.BFS(g, src, s);
+				break;
+			case PARALLEL_BFS:
+				ParallelBFS.BFS(g, src, s);
+				break;
+			case DAG:
+				shortestPath.DAG(g, src, s, properties.topOrder);
+				break;
+			case DIJKSTRA_BINARY:
+				shortestPath.dijkstraShortestPath(g, src, s, HeapType.BINARY, true);
+				break;
+			case DIJKSTRA_RADIX:
+				shortestPath.dijkstraShortestPath(g, src, s, HeapType.RADIX, true);
+				break;
+			case DIJKSTRA_DIAL:
+				shortestPath.dijkstraShortestPath(g, src, s, HeapType.DIAL, true);
+				break;
+			case DELTA_STEPPING:
+				DeltaStepping.deltaStepping(g, src, s);
+				break;
+			case SCC_HYBRID:
+				if (!properties.hybrid.solve(src, s).isEmpty())
+					return null;
+				break;
+			case GOLDBERG_RADZIK:
+				if (!GoldbergRadzik.goldbergRadzik(g, src, s))
+					return null;
+				break;
+			case COST_SCALING:
+				if (!GoldbergRadzik.costScaling(g, src, s))
+					return null;
+				break;
+			case PARALLEL_BELLMAN_FORD:
+				if (!ParallelBellmanFord.bellmanFord(g, src, s))
+					return null;
+				break;
+			default:
+				if (!shortestPath.bellmanFord(g, src, s))
+					return null;
+			}
+			return engine.algorithm;
+		}
+
+		public String toString() {
+			return "Plan: " + engine + " (" + engine.algorithm + "), because " + reason + ".";
+		}
+
+		/**
+		 * The plan, the graph properties and the cost of every engine
+		 */
+		public String explain() {
+			StringBuilder sb = new StringBuilder(toString());
+			sb.append(String.format("%nGraph: %s", properties));
+			for (Engine e : Engine.values()) {
+				double c = cost[e.ordinal()];
+				sb.append(String.format("%n  %-22s %s", e, c == Double.POSITIVE_INFINITY ? "-  " + why[e.ordinal()]
+						: String.format("%.3g", c)));
+			}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * The properties of g, worked out on the first call and then cached on g
+	 */
+	static Properties properties(CSRGraph g) {
+		return properties(g, 1);
+	}
+
+	/**
+	 * The properties of g, worked out on the first call with the threads given
+	 * and then cached on g
+	 */
+	static Properties properties(CSRGraph g, int parallelism) {
+		synchronized (g) {
+			if (g.properties == null)
+				g.properties = new Properties(g, parallelism);
+			return g.properties;
+		}
+	}
+
+	/**
+	 * Plan for one thread
+	 */
+	public static Plan plan(CSRGraph g) {
+		return plan(g, 1);
+	}
+
+	/**
+	 * Plan for a number of threads
+	 *
+	 * @param g:
+	 *            CSRGraph
+	 * @param parallelism:
+	 *            int - threads the parallel engines would get
+	 * @return: Plan
+	 */
+	public static Plan plan(CSRGraph g, int parallelism) {
+		Properties p = properties(g, parallelism);
+		double n = Math.max(1, p.numNodes), m = p.numEdges;
+		double logn = log2(n + 1), w = Math.max(1, p.maxWeight), par = parallelism;
+		int count = Engine.values().length;
+		double[] cost = new double[count];
+		String[] why = new String[count];
+		Arrays.fill(cost, Double.POSITIVE_INFINITY);
+
+		if (!(p.uniformW && p.nonNegative))
+			why[Engine.BFS.ordinal()] = why[Engine.PARALLEL_BFS.ordinal()] = "weights differ or are negative";
+		else {
+			cost[Engine.BFS.ordinal()] = n + m;
+			cost[Engine.PARALLEL_BFS.ordinal()] = 2 * (n + m) / par;
+		}
+		if (!p.acyclic)
+			why[Engine.DAG.ordinal()] = "the graph has a cycle";
+		else
+			cost[Engine.DAG.ordinal()] = n + m;
+		if (!p.nonNegative) {
+			why[Engine.DIJKSTRA_BINARY.ordinal()] = why[Engine.DIJKSTRA_RADIX.ordinal()] = why[Engine.DIJKSTRA_DIAL
+					.ordinal()] = why[Engine.DELTA_STEPPING.ordinal()] = "negative weights";
+		} else {
+			cost[Engine.DIJKSTRA_BINARY.ordinal()] = m + n * logn;
+			cost[Engine.DIJKSTRA_RADIX.ordinal()] = m + n * (4 + log2(w + 1));
+			if (p.maxWeight > MAX_DIAL_WEIGHT)
+				why[Engine.DIJKSTRA_DIAL.ordinal()] = "weights above " + MAX_DIAL_WEIGHT;
+			else
+				cost[Engine.DIJKSTRA_DIAL.ordinal()] = m + n + w * Math.sqrt(n) / 20;
+			cost[Engine.DELTA_STEPPING.ordinal()] = 2 * (m + n * logn) / par;
+		}
+		if (p.hybrid == null)
+			why[Engine.SCC_HYBRID.ordinal()] = p.acyclic ? "the graph is acyclic" : "no negative weights";
+		else
+			cost[Engine.SCC_HYBRID.ordinal()] = hybridCost(p);
+		if (p.nonNegative)
+			why[Engine.GOLDBERG_RADZIK.ordinal()] = why[Engine.COST_SCALING.ordinal()] = "no negative weights";
+		else {
+			int bits = 32 - Integer.numberOfLeadingZeros(Math.max(-p.minWeight, p.maxWeight));
+			cost[Engine.GOLDBERG_RADZIK.ordinal()] = 10 * m + n;
+			cost[Engine.COST_SCALING.ordinal()] = m + n * logn + 6 * bits * (n + m);
+		}
+		cost[Engine.BELLMAN_FORD.ordinal()] = bellmanFordCost(n, m);
+		cost[Engine.PARALLEL_BELLMAN_FORD.ordinal()] = 2 * bellmanFordCost(n, m) / par;
+		if (parallelism <= 1) {
+			for (Engine e : new Engine[] { Engine.PARALLEL_BFS, Engine.DELTA_STEPPING,
+					Engine.PARALLEL_BELLMAN_FORD }) {
+				if (cost[e.ordinal()] != Double.POSITIVE_INFINITY) {
+					cost[e.ordinal()] = Double.POSITIVE_INFINITY;
+					why[e.ordinal()] = "one thread";
+				}
+			}
+		}
+		return new Plan(p, parallelism, cost, why);
+	}
+
+	/**
+	 * Cost of SCCHybrid: every vertex and arc once, plus Dijkstra or
+	 * Bellman-Ford inside each component that has a cycle
+	 */
+	private static double hybridCost(Properties p) {
+		double cost = p.numNodes + p.numEdges;
+		SCC scc = p.scc;
+		for (int c = 0; c < scc.count; c++) {
+			double n = scc.size(c), m = p.hybrid.arcs(c), logn = log2(n + 1);
+			if (m == 0)
+				continue;
+			cost += p.hybrid.negative(c) ? bellmanFordCost(n, m) : n * logn;
+		}
+		return cost;
+	}
+
+	/**
+	 * Cost of bellmanFord: every vertex, and its rounds, about log n / log(1+d)
+	 * of them for d arcs per vertex, each scanning the arcs of the vertices it
+	 * changed
+	 */
+	private static double bellmanFordCost(double n, double m) {
+		return n + m * (2 + log2(n + 1) / log2(1 + Math.max(1, m / n)));
+	}
+
+	private static double log2(double x) {
+		return Math.log(x) / Math.log(2);
+	}
+}
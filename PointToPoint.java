@@ -0,0 +1,165 @@
+/**
+ * Point-to-point shortest path queries on a CSR graph with only non-negative
+ * edges, by bidirectional Dijkstra.
+ *
+ * A forward search from the source over the arcs and a backward search from
+ * the target over the reverse arcs take turns settling one vertex each. mu is
+ * the length of the best source-target path seen so far, found whenever an
+ * arc joins the two searches. The query stops as soon as the smallest keys of
+ * the two heaps add up to at least mu; no shorter path can be left.
+ *
+ * The searches live in two SearchStates that are reused by every query, so a
+ * PointToPoint object is for one thread at a time.
+ *
+ * Usage: PointToPoint p2p = new PointToPoint(g);
+ *        int d = p2p.distance(s, t);
+ *        int[] path = p2p.path(s, t);
+ */
+
+import java.util.Arrays;
+
+public class PointToPoint {
+	private final CSRGraph g;
+	private final SearchState fwd, bwd; // bwd.parent(v) is the next vertex towards t
+	private final HeapType heapType;
+	private long mu; // length of the best path found by the last query
+	private int meet; // a vertex on that path, 0 if there is none
+	private int settled; // vertices settled by the last query, both sides
+
+	/**
+	 * Constructor for PointToPoint on the CSR form of g
+	 *
+	 * @param g
+	 *            : Graph - with only non-negative edges
+	 */
+	PointToPoint(Graph g) {
+		this(g.csr(), HeapType.BINARY);
+	}
+
+	/**
+	 * Constructor for PointToPoint
+	 *
+	 * @param g
+	 *            : CSRGraph - with only non-negative edges
+	 * @param heapType
+	 *            : HeapType - priority queue of both searches
+	 */
+	PointToPoint(CSRGraph g, HeapType heapType) {
+		if (!g.nonNegative)
+			throw new IllegalArgumentException("Bidirectional Dijkstra needs non-negative edge weights");
+		this.g = g;
+		this.heapType = heapType;
+		fwd = new SearchState(g.numNodes);
+		bwd = new SearchState(g.numNodes);
+	}
+
+	/**
+	 * Length of the shortest path from s to t
+	 *
+	 * @param s:
+	 *            int - source
+	 * @param t:
+	 *            int - target
+	 * @return: int - the distance, SearchState.INF if t cannot be reached
+	 */
+	public int distance(int s, int t) {
+		search(s, t);
+		return meet == 0 ? SearchState.INF : (int) mu;
+	}
+
+	/**
+	 * A shortest path from s to t
+	 *
+	 * @param s:
+	 *            int - source
+	 * @param t:
+	 *            int - target
+	 * @return: int[] - the vertices of the path from s to t, null if t cannot
+	 *          be reached
+	 */
+	public int[] path(int s, int t) {
+		search(s, t);
+		if (meet == 0)
+			return null;
+		int[] path = new int[16];
+		int n = 0;
+		for (int u = meet; u != 0; u = fwd.parent(u)) {
+			if (n == path.length)
+				path = Arrays.copyOf(path, 2 * n);
+			path[n++] = u;
+		}
+		// the forward half was collected from meet back to s
+		for (int i = 0, j = n - 1; i < j; i++, j--) {
+			int x = path[i];
+			path[i] = path[j];
+			path[j] = x;
+		}
+		for (int u = bwd.parent(meet); u != 0; u = bwd.parent(u)) {
+			if (n == path.length)
+				path = Arrays.copyOf(path, 2 * n);
+			path[n++] = u;
+		}
+		return Arrays.copyOf(path, n);
+	}
+
+	/**
+	 * @return: int - number of vertices settled by the last query, by both
+	 *          searches together
+	 */
+	public int settled() {
+		return settled;
+	}
+
+	private void search(int s, int t) {
+		fwd.initialize(s);
+		bwd.initialize(t);
+		IntPQ fheap = fwd.heap(heapType), bheap = bwd.heap(heapType);
+		fheap.insert(s, 0);
+		bheap.insert(t, 0);
+		mu = s == t ? 0 : Long.MAX_VALUE;
+		meet = s == t ? s : 0;
+		settled = 0;
+
+		boolean forward = true;
+		while (!fheap.isEmpty() && !bheap.isEmpty()) {
+			// no path through an unsettled vertex is shorter than this
+			if ((long) fwd.distance(fheap.min()) + bwd.distance(bheap.min()) >= mu)
+				break;
+			if (forward)
+				step(fheap, fwd, bwd, true);
+			else
+				step(bheap, bwd, fwd, false);
+			forward = !forward;
+		}
+	}
+
+	/**
+	 * Settle the next vertex of one search and relax its arcs, forward arcs
+	 * for the forward search and reverse arcs for the backward one
+	 */
+	private void step(IntPQ heap, SearchState s, SearchState other, boolean forward) {
+		int u = heap.deleteMin();
+		s.setSeen(u, true);
+		settled++;
+		int du = s.distance(u);
+		int b = forward ? g.begin(u) : g.rbegin(u);
+		int e = forward ? g.end(u) : g.rend(u);
+		for (; b < e; b++) {
+			int v = forward ? g.target(b) : g.rsource(b);
+			int w = forward ? g.weight(b) : g.rweight(b);
+			if (s.seen(v) || s.distance(v) <= du + w)
+				continue;
+			s.setDistance(v, du + w);
+			s.setParent(v, u);
+			if (heap.contains(v))
+				heap.decreaseKey(v, du + w);
+			else
+				heap.insert(v, du + w);
+			// the arc joins the two searches
+			if (other.distance(v) != SearchState.INF && (long) du + w + other.distance(v) < mu) {
+				mu = (long) du + w + other.distance(v);
+				meet = v;
+			}
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ * Monotone radix heap of vertex names with non-negative long keys. A key
+ * lives in the bucket numbered by the highest bit in which it differs from
+ * the last deleted key, so it is only valid when keys are never below the
+ * last deleteMin, which is the case in Dijkstra's algorithm. Each bucket is a
+ * doubly linked list kept in arrays, so decreaseKey is an unlink and a relink.
+ *
+ */
+
+import java.util.Arrays;
+
+public class RadixHeap implements IntPQ {
+	static final int BUCKETS = 65;
+
+	long[] key;
+	int[] bucket; // bucket of each vertex, -1 if not in the heap
+	int[] next, prev; // links of the bucket lists, 0 at the ends
+	int[] head = new int[BUCKETS]; // first vertex of each bucket
+	long last; // key of the last deleted vertex
+	int size;
+
+	/** Create an empty priority queue for vertices 1..n */
+	RadixHeap(int n) {
+		key = new long[n + 1];
+		bucket = new int[n + 1];
+		Arrays.fill(bucket, -1);
+		next = new int[n + 1];
+		prev = new int[n + 1];
+		last = 0;
+		size = 0;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean contains(int v) {
+		return bucket[v] >= 0;
+	}
+
+	public void clear() {
+		for (int b = 0; b < BUCKETS; b++) {
+			for (int v = head[b]; v != 0; v = next[v])
+				bucket[v] = -1;
+			head[b] = 0;
+		}
+		last = 0;
+		size = 0;
+	}
+
+	public void insert(int v, long k) {
+		if (k < last)
+			throw new IllegalArgumentException("Radix heap keys must not go below the last deleted key");
+		key[v] = k;
+		push(v, bucketOf(k));
+		size++;
+	}
+
+	public int min() {
+		pull();
+		return head[0];
+	}
+
+	public int deleteMin() {
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.HEAP_REMOVES);
+		pull();
+		int min = head[0];
+		unlink(min);
+		size--;
+		return min;
+	}
+
+	public void decreaseKey(int v, long k) {
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.HEAP_DECREASE_KEYS);
+		if (k < last)
+			throw new IllegalArgumentException("Radix heap keys must not go below the last deleted key");
+		unlink(v);
+		key[v] = k;
+		push(v, bucketOf(k));
+	}
+
+	/**
+	 * Make sure bucket 0 holds the minimum: take the first non-empty bucket,
+	 * move last up to its smallest key and spread it over the lower buckets
+	 */
+	void pull() {
+		if (head[0] != 0)
+			return;
+		int b = 1;
+		while (head[b] == 0)
+			b++;
+		long min = Long.MAX_VALUE;
+		for (int v = head[b]; v != 0; v = next[v])
+			min = Math.min(min, key[v]);
+		last = min;
+		int v = head[b];
+		head[b] = 0;
+		while (v != 0) {
+			int nxt = next[v];
+			push(v, bucketOf(key[v]));
+			v = nxt;
+		}
+	}
+
+	int bucketOf(long k) {
+		return 64 - Long.numberOfLeadingZeros(k ^ last);
+	}
+
+	void push(int v, int b) {
+		bucket[v] = b;
+		prev[v] = 0;
+		next[v] = head[b];
+		if (head[b] != 0)
+			prev[head[b]] = v;
+		head[b] = v;
+	}
+
+	void unlink(int v) {
+		if (prev[v] != 0)
+			next[prev[v]] = next[v];
+		else
+			head[bucket[v]] = next[v];
+		if (next[v] != 0)
+			prev[next[v]] = prev[v];
+		bucket[v] = -1;
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ * Strongly connected components of a CSRGraph by Tarjan's algorithm. The DFS
+ * uses an explicit stack, like shortestPath.DFSVisit, so a long path does not
+ * overflow the thread stack.
+ *
+ * The components are numbered in topological order of the condensation: an
+ * arc between two components goes from a lower number to a higher one. The
+ * vertices are also listed component by component in that order, so a graph
+ * whose components are all single vertices without a self-loop (acyclic())
+ * has its topological order in order().
+ *
+ * Usage: SCC scc = new SCC(g);
+ *        for (int c = 0; c < scc.count; c++)
+ *            for (int i = scc.begin(c); i < scc.end(c); i++) ... scc.vertex(i)
+ */
+
+import java.util.Arrays;
+
+public class SCC {
+	public final int count; // number of components
+	private final int[] comp; // component of each vertex
+	private final int[] start; // start[c]..start[c+1]-1 are the positions of c in order
+	private final int[] order; // vertices, component by component
+	private final boolean selfLoop;
+
+	/**
+	 * Constructor for SCC
+	 *
+	 * @param g
+	 *            : CSRGraph
+	 */
+	SCC(CSRGraph g) {
+		int n = g.numNodes;
+		int[] index = new int[n + 1]; // DFS number, 0 if not visited
+		int[] low = new int[n + 1];
+		boolean[] onStack = new boolean[n + 1];
+		int[] tarjan = new int[n]; // vertices of the components not yet closed
+		int[] stack = new int[n], next = new int[n]; // DFS path and next arc of each level
+		comp = new int[n + 1];
+		int counter = 0, found = 0, ttop = 0;
+		boolean loop = false;
+
+		for (int r = 1; r <= n; r++) {
+			if (index[r] != 0)
+				continue;
+			int top = 0;
+			stack[0] = r;
+			next[0] = g.begin(r);
+			index[r] = low[r] = ++counter;
+			tarjan[ttop++] = r;
+			onStack[r] = true;
+			while (top >= 0) {
+				int u = stack[top];
+				int e = next[top];
+				if (e < g.end(u)) {
+					next[top] = e + 1;
+					int v = g.target(e);
+					if (v == u)
+						loop = true;
+					if (index[v] == 0) {
+						index[v] = low[v] = ++counter;
+						tarjan[ttop++] = v;
+						onStack[v] = true;
+						stack[++top] = v;
+						next[top] = g.begin(v);
+					} else if (onStack[v])
+						low[u] = Math.min(low[u], index[v]);
+					continue;
+				}
+				// u is finished
+				top--;
+				if (top >= 0)
+					low[stack[top]] = Math.min(low[stack[top]], low[u]);
+				if (low[u] == index[u]) {
+					int w;
+					do {
+						w = tarjan[--ttop];
+						onStack[w] = false;
+						comp[w] = found;
+					} while (w != u);
+					found++;
+				}
+			}
+		}
+		count = found;
+		selfLoop = loop;
+
+		// Tarjan closes a component after all the components it reaches, so
+		// the numbers are reversed to put them in topological order
+		start = new int[count + 1];
+		for (int v = 1; v <= n; v++) {
+			comp[v] = count - 1 - comp[v];
+			start[comp[v] + 1]++;
+		}
+		for (int c = 0; c < count; c++)
+			start[c + 1] += start[c];
+		order = new int[n];
+		int[] pos = Arrays.copyOf(start, count);
+		for (int v = 1; v <= n; v++)
+			order[pos[comp[v]]++] = v;
+	}
+
+	/** component of v */
+	public int component(int v) {
+		return comp[v];
+	}
+
+	/** position in order() of the first vertex of component c */
+	public int begin(int c) {
+		return start[c];
+	}
+
+	/** position in order() after the last vertex of component c */
+	public int end(int c) {
+		return start[c + 1];
+	}
+
+	/** number of vertices of component c */
+	public int size(int c) {
+		return start[c + 1] - start[c];
+	}
+
+	/** the vertex at position i of order() */
+	public int vertex(int i) {
+		return order[i];
+	}
+
+	/**
+	 * @return: int[] - the vertices, component by component in topological
+	 *          order. Not a copy
+	 */
+	int[] order() {
+		return order;
+	}
+
+	/**
+	 * @return: boolean - true if the graph has no cycle
+	 */
+	public boolean acyclic() {
+		return count == order.length && !selfLoop;
+	}
+}
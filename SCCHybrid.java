@@ -0,0 +1,220 @@
+/**
+ * Shortest paths on a CSR graph with negative arcs, one strongly connected
+ * component at a time.
+ *
+ * The components are taken in topological order of the condensation, as DAG
+ * takes the vertices, so the arcs into a component have all been relaxed by
+ * the time it is solved. Inside a component the vertices reached so far are
+ * the sources:
+ *   a single vertex without a self-loop only relaxes its arcs, as in DAG;
+ *   a component without a negative arc inside it runs Dijkstra;
+ *   a component with one runs the FIFO Bellman-Ford of bellmanFord.
+ * So Bellman-Ford only pays for the components that hold the negative arcs,
+ * and a negative arc between two components costs nothing extra.
+ *
+ * A negative cycle is found in the component that holds it, and is reported
+ * by component. The components that can be reached from it are left unsolved.
+ *
+ * Usage: SCCHybrid h = new SCCHybrid(g);
+ *        List<Integer> cycles = h.solve(src, s);
+ *        if (!cycles.isEmpty()) System.out.println(h.report(cycles));
+ */
+
+import java.util.*;
+
+public class SCCHybrid {
+	final CSRGraph g;
+	final SCC scc;
+	private final boolean[] negative; // a negative arc inside the component
+	private final boolean[] cyclic; // more than one vertex, or a self-loop
+	private final int[] arcs; // arcs inside the component
+
+	/**
+	 * Constructor for SCCHybrid
+	 *
+	 * @param g
+	 *            : CSRGraph
+	 */
+	SCCHybrid(CSRGraph g) {
+		this(g, new SCC(g));
+	}
+
+	/**
+	 * Constructor for SCCHybrid with the components already found
+	 *
+	 * @param g
+	 *            : CSRGraph
+	 * @param scc
+	 *            : SCC - the components of g
+	 */
+	SCCHybrid(CSRGraph g, SCC scc) {
+		this.g = g;
+		this.scc = scc;
+		negative = new boolean[scc.count];
+		cyclic = new boolean[scc.count];
+		arcs = new int[scc.count];
+		for (int u = 1; u <= g.numNodes; u++) {
+			int c = scc.component(u);
+			for (int e = g.begin(u); e < g.end(u); e++) {
+				if (scc.component(g.target(e)) != c)
+					continue;
+				arcs[c]++;
+				if (g.weight(e) < 0)
+					negative[c] = true;
+			}
+		}
+		for (int c = 0; c < scc.count; c++)
+			cyclic[c] = scc.size(c) > 1 || arcs[c] > 0;
+	}
+
+	/** true if component c has a negative arc inside it */
+	public boolean negative(int c) {
+		return negative[c];
+	}
+
+	/** number of arcs inside component c */
+	public int arcs(int c) {
+		return arcs[c];
+	}
+
+	/**
+	 * Shortest paths from src
+	 *
+	 * @param src:
+	 *            int - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 * @return: List<Integer> - the components with a negative cycle that src
+	 *          reaches, in topological order; empty if there is none. The
+	 *          distances of the vertices those components reach are not
+	 *          shortest. A list that is not empty is also kept in
+	 *          s.negativeCycles
+	 */
+	public List<Integer> solve(int src, SearchState s) {
+		s.initialize(src);
+		List<Integer> cycles = new ArrayList<>();
+		boolean[] unsolved = null; // components reached from a negative cycle
+		for (int c = scc.component(src); c < scc.count; c++) {
+			if (unsolved != null && unsolved[c]) {
+				markSuccessors(c, unsolved);
+				continue;
+			}
+			if (!cyclic[c]) {
+				int u = scc.vertex(scc.begin(c));
+				if (s.distance(u) != SearchState.INF)
+					for (int e = g.begin(u); e < g.end(u); e++)
+						shortestPath.relax(g, s, u, e);
+			} else if (!negative[c])
+				dijkstra(c, s);
+			else if (!bellmanFord(c, s)) {
+				cycles.add(c);
+				if (unsolved == null)
+					unsolved = new boolean[scc.count];
+				markSuccessors(c, unsolved);
+			}
+		}
+		if (!cycles.isEmpty())
+			s.negativeCycles = cycles;
+		return cycles;
+	}
+
+	/**
+	 * Dijkstra's algorithm inside component c, from the vertices of c that
+	 * have been reached. The arcs that leave c are relaxed when their source
+	 * is settled
+	 */
+	private void dijkstra(int c, SearchState s) {
+		IntPQ heap = s.heap(HeapType.BINARY);
+		for (int i = scc.begin(c); i < scc.end(c); i++) {
+			int v = scc.vertex(i);
+			if (s.distance(v) != SearchState.INF)
+				heap.insert(v, s.distance(v));
+		}
+		while (!heap.isEmpty()) {
+			int u = heap.deleteMin();
+			s.setSeen(u, true);
+			for (int e = g.begin(u); e < g.end(u); e++) {
+				int v = g.target(e);
+				if (scc.component(v) != c)
+					shortestPath.relax(g, s, u, e);
+				else if (!s.seen(v) && shortestPath.relax(g, s, u, e)) {
+					if (heap.contains(v))
+						heap.decreaseKey(v, s.distance(v));
+					else
+						heap.insert(v, s.distance(v));
+				}
+			}
+		}
+	}
+
+	/**
+	 * FIFO Bellman-Ford inside component c, from the vertices of c that have
+	 * been reached. With those as the sources a shortest path has at most
+	 * size(c) arcs inside c, so a vertex taken from the queue more often than
+	 * that is on or behind a negative cycle
+	 *
+	 * @return: true if c has no negative cycle, else false
+	 */
+	private boolean bellmanFord(int c, SearchState s) {
+		int[] queue = s.queue();
+		int head = 0, tail = 0, size = 0, limit = scc.size(c);
+		for (int i = scc.begin(c); i < scc.end(c); i++) {
+			int v = scc.vertex(i);
+			if (s.distance(v) != SearchState.INF) {
+				s.setSeen(v, true);
+				queue[tail++] = v;
+				size++;
+			}
+		}
+		while (size > 0) {
+			int u = queue[head];
+			head = (head + 1) % queue.length;
+			size--;
+			s.setSeen(u, false);
+			s.setCount(u, s.count(u) + 1);
+			if (s.count(u) > limit)
+				return false;
+			for (int e = g.begin(u); e < g.end(u); e++) {
+				int v = g.target(e);
+				if (shortestPath.relax(g, s, u, e) && scc.component(v) == c && !s.seen(v)) {
+					queue[tail] = v;
+					tail = (tail + 1) % queue.length;
+					size++;
+					s.setSeen(v, true);
+					if (Metrics.ENABLED) {
+						Metrics.count(Metrics.Counter.QUEUE_PUSHES);
+						if (s.count(v) > 0)
+							Metrics.count(Metrics.Counter.BELLMAN_FORD_REENQUEUES);
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/** mark the components that the arcs leaving c go to */
+	private void markSuccessors(int c, boolean[] unsolved) {
+		for (int i = scc.begin(c); i < scc.end(c); i++) {
+			int u = scc.vertex(i);
+			for (int e = g.begin(u); e < g.end(u); e++)
+				unsolved[scc.component(g.target(e))] = true;
+		}
+	}
+
+	/**
+	 * The components with a negative cycle, one per line, with their
+	 * vertices (the first 10 of them)
+	 */
+	public String report(List<Integer> cycles) {
+		StringBuilder sb = new StringBuilder();
+		for (int c : cycles) {
+			sb.append(String.format("Negative cycle in component %d (%d vertices):", c, scc.size(c)));
+			for (int i = scc.begin(c); i < Math.min(scc.end(c), scc.begin(c) + 10); i++)
+				sb.append(' ').append(scc.vertex(i));
+			if (scc.size(c) > 10)
+				sb.append(" ...");
+			sb.append(String.format("%n"));
+		}
+		return sb.toString();
+	}
+}
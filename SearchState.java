@@ -0,0 +1,256 @@
+/**
+ * Class to hold the per-vertex state of one shortest path search over a
+ * CSRGraph or a Graph: the same distance, parent, seen, count, color and
+ * numOfShortestPaths values that Vertex carries, kept in primitive arrays
+ * indexed by vertex name.
+ *
+ * A SearchState is meant to be reused for many queries on the same graph.
+ * Every vertex carries the number (epoch) of the query that last wrote it, and
+ * a value with an old epoch reads as unset, so initialize() does not clear the
+ * arrays and a query only costs as much as the vertices it touches.
+ *
+ */
+
+import java.util.Arrays;
+import java.util.List;
+
+public class SearchState {
+	public static final int INF = Integer.MAX_VALUE;
+	public static final byte WHITE = 0, GRAY = 1, BLACK = 2;
+
+	int numNodes;
+	int[] distance;
+	int[] parent; // 0 if the vertex has no parent
+	boolean[] seen;
+	int[] count;
+	byte[] color;
+	int[] numOfShortestPaths;
+
+	int epoch; // number of the current query
+	int[] stamp; // epoch in which each vertex was last written
+	int colorEpoch; // colors are reset on their own, for each new DFS
+	int[] colorStamp;
+	int[] touched; // vertices written in this epoch, in the order reached
+	int numTouched;
+	List<Integer> negativeCycles; // components with a negative cycle, found by SCCHybrid
+
+	private int[] queue; // scratch queue for BFS and Bellman-Ford
+	private int[] stack, cursor; // scratch DFS stack and next arc per level
+	private IntPQ heap; // scratch heap for Dijkstra
+	private HeapType heapType;
+
+	/**
+	 * Constructor for SearchState
+	 *
+	 * @param n
+	 *            : int - number of vertices
+	 */
+	SearchState(int n) {
+		numNodes = n;
+		distance = new int[n + 1];
+		parent = new int[n + 1];
+		seen = new boolean[n + 1];
+		count = new int[n + 1];
+		color = new byte[n + 1];
+		numOfShortestPaths = new int[n + 1];
+		stamp = new int[n + 1];
+		colorStamp = new int[n + 1];
+		touched = new int[n];
+		epoch = 0;
+		colorEpoch = 0;
+	}
+
+	/**
+	 * Start a new query: every vertex becomes unreached and the distance of
+	 * src becomes 0. Takes O(1) time.
+	 *
+	 * @param src:
+	 *            int - Source
+	 */
+	void initialize(int src) {
+		reset();
+		setDistance(src, 0);
+	}
+
+	/**
+	 * Start a new query with every vertex unreached. Takes O(1) time.
+	 */
+	void reset() {
+		if (++epoch == Integer.MAX_VALUE) {
+			// the stamps would repeat; start them over
+			Arrays.fill(stamp, 0);
+			epoch = 1;
+		}
+		numTouched = 0;
+		negativeCycles = null;
+		clearColors();
+	}
+
+	/**
+	 * Start a new query with the distances and parents that are stored in the
+	 * vertices of g, e.g. by the shortestPath(Graph, Vertex) methods
+	 *
+	 * @param g:
+	 *            Graph
+	 */
+	void load(Graph g) {
+		reset();
+		for (Vertex u : g) {
+			if (u.distance != INF) {
+				setDistance(u.name, u.distance);
+				setParent(u.name, u.parent == null ? 0 : u.parent.name);
+			}
+		}
+	}
+
+	/**
+	 * Copy the state of every vertex into the fields of the Vertex objects of
+	 * g, for the callers that read the results from there
+	 *
+	 * @param g:
+	 *            Graph
+	 */
+	void publish(Graph g) {
+		for (Vertex u : g) {
+			u.distance = distance(u.name);
+			u.parent = parent(u.name) == 0 ? null : g.verts.get(parent(u.name));
+			u.seen = seen(u.name);
+			u.count = count(u.name);
+			u.numOfShortestPaths = numOfShortestPaths(u.name);
+		}
+	}
+
+	/**
+	 * Set every vertex back to WHITE, for a new DFS
+	 */
+	void clearColors() {
+		if (++colorEpoch == Integer.MAX_VALUE) {
+			Arrays.fill(colorStamp, 0);
+			colorEpoch = 1;
+		}
+	}
+
+	/**
+	 * Give u the default values, the first time it is written in this epoch
+	 */
+	private void touch(int u) {
+		if (stamp[u] != epoch) {
+			stamp[u] = epoch;
+			distance[u] = INF;
+			parent[u] = 0;
+			seen[u] = false;
+			count[u] = 0;
+			numOfShortestPaths[u] = 0;
+			touched[numTouched++] = u;
+		}
+	}
+
+	/**
+	 * @return: int - number of vertices written by the current query
+	 */
+	int numTouched() {
+		return numTouched;
+	}
+
+	/**
+	 * @return: int - the i-th vertex written by the current query
+	 */
+	int touched(int i) {
+		return touched[i];
+	}
+
+	/**
+	 * A queue of numNodes + 1 ints that the solvers can reuse between queries
+	 */
+	int[] queue() {
+		if (queue == null)
+			queue = new int[numNodes + 1];
+		return queue;
+	}
+
+	/**
+	 * A DFS stack of numNodes + 1 vertices that the solvers can reuse between
+	 * queries
+	 */
+	int[] stack() {
+		if (stack == null)
+			stack = new int[numNodes + 1];
+		return stack;
+	}
+
+	/**
+	 * The next arc to look at for each level of stack(), numNodes + 1 ints
+	 */
+	int[] cursor() {
+		if (cursor == null)
+			cursor = new int[numNodes + 1];
+		return cursor;
+	}
+
+	/**
+	 * An empty priority queue of the given type that the solvers can reuse
+	 * between queries
+	 */
+	IntPQ heap(HeapType type) {
+		if (heap == null || heapType != type) {
+			heap = type.create(numNodes);
+			heapType = type;
+		} else
+			heap.clear();
+		return heap;
+	}
+
+	int distance(int u) {
+		return stamp[u] == epoch ? distance[u] : INF;
+	}
+
+	void setDistance(int u, int d) {
+		touch(u);
+		distance[u] = d;
+	}
+
+	int parent(int u) {
+		return stamp[u] == epoch ? parent[u] : 0;
+	}
+
+	void setParent(int u, int p) {
+		touch(u);
+		parent[u] = p;
+	}
+
+	boolean seen(int u) {
+		return stamp[u] == epoch && seen[u];
+	}
+
+	void setSeen(int u, boolean b) {
+		touch(u);
+		seen[u] = b;
+	}
+
+	int count(int u) {
+		return stamp[u] == epoch ? count[u] : 0;
+	}
+
+	void setCount(int u, int c) {
+		touch(u);
+		count[u] = c;
+	}
+
+	byte color(int u) {
+		return colorStamp[u] == colorEpoch ? color[u] : WHITE;
+	}
+
+	void setColor(int u, byte c) {
+		colorStamp[u] = colorEpoch;
+		color[u] = c;
+	}
+
+	int numOfShortestPaths(int u) {
+		return stamp[u] == epoch ? numOfShortestPaths[u] : 0;
+	}
+
+	void setNumOfShortestPaths(int u, int p) {
+		touch(u);
+		numOfShortestPaths[u] = p;
+	}
+}
@@ -0,0 +1,32 @@
+/**
+ * Class that represents a shortcut added by ContractionHierarchy: an arc that
+ * stands for the path first, then second, through a contracted vertex. Either
+ * part may be a shortcut itself.
+ *
+ */
+public class Shortcut extends Edge {
+	public Edge first; // part from From to via
+	public Edge second; // part from via to To
+	public Vertex via; // the contracted vertex
+
+	/**
+	 * Constructor for Shortcut
+	 *
+	 * @param u
+	 *            : Vertex - The head of the arc
+	 * @param x
+	 *            : Vertex - The tail of the arc
+	 * @param via
+	 *            : Vertex - the contracted vertex between them
+	 * @param first
+	 *            : Edge - arc between u and via
+	 * @param second
+	 *            : Edge - arc between via and x
+	 */
+	Shortcut(Vertex u, Vertex x, Vertex via, Edge first, Edge second) {
+		super(u, x, first.Weight + second.Weight);
+		this.via = via;
+		this.first = first;
+		this.second = second;
+	}
+}
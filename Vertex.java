@@ -13,6 +13,8 @@ public class Vertex implements Index, Comparator<Vertex> {
 	}
 
 	public int name; // name of the vertex
+	// The search fields below are only written by the shortestPath methods
+	// that take no SearchState; the others leave the vertex untouched.
 	public boolean seen; // flag to check if the vertex has already been visited
 	public Vertex parent; // parent of the vertex
 	public int distance; // distance to the vertex from the source vertex
@@ -64,6 +66,6 @@ public class Vertex implements Index, Comparator<Vertex> {
 
 	@Override
 	public int compare(Vertex o1, Vertex o2) {
-		return o1.distance - o2.distance;
+		return Integer.compare(o1.distance, o2.distance);
 	}
 }
@@ -1,8 +1,9 @@
 import java.util.LinkedList;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class shortestPath {
 
@@ -37,7 +38,11 @@ public class shortestPath {
 	 * @return: true - if any changes has been done, else false
 	 */
 	public static boolean relax(Vertex u, Vertex v, Edge e) {
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.EDGE_RELAXATIONS);
 		if (v.distance > u.distance + e.Weight) {
+			if (Metrics.ENABLED)
+				Metrics.count(Metrics.Counter.RELAXATIONS);
 			v.distance = u.distance + e.Weight;
 			v.parent = u;
 			return true;
@@ -55,25 +60,9 @@ public class shortestPath {
 	 *            Vertex - source
 	 */
 	public static void BFS(Graph g, Vertex src) {
-		Queue<Vertex> queue = new LinkedList<>();// queue to store the vertices
-													// to be visited in order
-		initialize(g, src);
-		queue.add(src);
-		src.seen = true;
-		Vertex u, v;
-		while (!queue.isEmpty()) {
-			u = queue.remove();
-			for (Edge e : u.Adj) {
-				v = e.otherEnd(u);
-				// if the Vertex is already seen, ignore that vertex
-				if (!v.seen) {
-					v.distance = u.distance + 1;
-					v.parent = u;
-					v.seen = true;
-					queue.add(v);
-				}
-			}
-		}
+		SearchState s = new SearchState(g.numNodes);
+		BFS(g, src, s);
+		s.publish(g);
 	}
 
 	/**
@@ -86,6 +75,36 @@ public class shortestPath {
 	 *            Vertex - Source
 	 */
 	public static void dijkstraShortestPath(Graph g, Vertex src) {
+		dijkstraShortestPath(g, src, false);
+	}
+
+	/**
+	 * To find shortest path for a graph with non-uniform weights, only
+	 * non-negative edges. In lazy mode the heap starts with src alone and a
+	 * vertex is added when it is first relaxed, so the vertices that cannot be
+	 * reached from src are never put in the heap.
+	 * 
+	 * The results go to the fields of every Vertex, so this takes O(n) time
+	 * even in lazy mode: a new SearchState per call, and a copy of it to all
+	 * vertices, since those that src does not reach must be reset too. Only
+	 * dijkstraShortestPath(Graph, Vertex, SearchState), with a SearchState
+	 * that is reused between queries, runs in time of the part of the graph
+	 * that src reaches.
+	 * 
+	 * @param g:
+	 *            Graph
+	 * @param src:
+	 *            Vertex - Source
+	 * @param lazy:
+	 *            boolean - true to add the vertices as they are reached
+	 */
+	public static void dijkstraShortestPath(Graph g, Vertex src, boolean lazy) {
+		if (lazy) {
+			SearchState s = new SearchState(g.numNodes);
+			dijkstraShortestPath(g, src, s);
+			s.publish(g);
+			return;
+		}
 		initialize(g, src);
 		// Create a indexed heap with vertex distance as the priority
 		IndexedHeap<Vertex> heap = new IndexedHeap<>(g.verts.toArray(new Vertex[g.verts.size()]), new Vertex());
@@ -114,16 +133,12 @@ public class shortestPath {
 	 *            Vertex - source
 	 */
 	public static void DAG(Graph g, Vertex src, ArrayDeque<Vertex> topOrder) {
-		Vertex u, v;
-		initialize(g, src);
-		// process the vertices in the topological order
-		while (!topOrder.isEmpty()) {
-			u = topOrder.pop();
-			for (Edge e : u.Adj) {
-				v = e.otherEnd(u);
-				relax(u, v, e);
-			}
-		}
+		int[] order = new int[topOrder.size()];
+		for (int i = 0; i < order.length; i++)
+			order[i] = topOrder.pop().name;
+		SearchState s = new SearchState(g.numNodes);
+		DAG(g, src, s, order);
+		s.publish(g);
 	}
 
 	/**
@@ -137,30 +152,10 @@ public class shortestPath {
 	 * @return: true if there is no negative cycle, else false
 	 */
 	public static boolean bellmanFord(Graph g, Vertex src) {
-		Queue<Vertex> queue = new LinkedList<>();
-		Vertex u, v;
-		initialize(g, src);
-		src.seen = true;
-		queue.add(src);
-		while (!queue.isEmpty()) {
-			u = queue.remove();
-			u.seen = false;
-			u.count = u.count + 1;
-			// if a vertex is visited more than the number of graphNode times
-			// then there is a cycle
-			if (u.count >= g.numNodes)
-				return false;
-			for (Edge e : u.Adj) {
-				v = e.otherEnd(u);
-				if (relax(u, v, e)) {
-					if (!v.seen) {
-						queue.add(v);
-						v.seen = true;
-					}
-				}
-			}
-		}
-		return true;
+		SearchState s = new SearchState(g.numNodes);
+		boolean noCycle = bellmanFord(g, src, s);
+		s.publish(g);
+		return noCycle;
 	}
 
 	/**
@@ -208,36 +203,9 @@ public class shortestPath {
 	 *            Vertex - Source
 	 */
 	public static void shortestPath(Graph g, Vertex src) {
-		ArrayDeque<Vertex> topOrder = new ArrayDeque<>();
-		LinkedList<Edge> cycle = new LinkedList<>();
-		// if Graph has equal positive edge weights
-		if (g.uniformW && g.nonNegative) {
-			BFS(g, src);
-			System.out.print("BFS ");
-		}
-		// if the Graph is DAG
-		else if (Graph.DFSVisit(src, topOrder, false, true, cycle)) {
-			DAG(g, src, topOrder);
-			System.out.print("DAG ");
-		}
-		// if the Graph has no negative edges
-		else if (g.nonNegative) {
-			dijkstraShortestPath(g, src);
-			System.out.print("Dij ");
-		}
-		// if the Graph has a cycle and negative edges but no negative cycles
-		else {
-			if (bellmanFord(g, src))
-				System.out.print("B-F ");
-			else {
-				System.out.println("Unable to solve problem. Graph has a negative cycle");
-				return;
-			}
-		}
-		sumOfShortestPaths(g);
-		if (g.numNodes <= 100)
-			printVertices(g);
-		
+		SearchState s = new SearchState(g.numNodes);
+		shortestPath(g, src, s);
+		s.publish(g);
 	}
 
 	/**
@@ -249,95 +217,936 @@ public class shortestPath {
 	 *            Vertex - Source
 	 */
 	public static void findShortestPaths(Graph g, Vertex src) {
-		Vertex v;
+		// the distances come from an earlier shortestPath(g, src)
+		SearchState s = new SearchState(g.numNodes);
+		s.load(g);
+		findShortestPaths(g, src, s);
+		s.publish(g);
+		for (int i = 0; i < s.numTouched(); i++)
+			g.sumOfNumOfPaths += s.numOfShortestPaths(s.touched(i));
+	}
 
-		// finding G' that has edges with v.d = u.d+e.weight
+	/**
+	 * To print the number of the shortest path to each vertex from the source
+	 * vertex
+	 * 
+	 * @param g:
+	 *            Graph
+	 */
+	public static void printShortPaths(Graph g) {
 		for (Vertex u : g) {
-			u.color = Vertex.Color.WHITE;
+			if (u.distance != Integer.MAX_VALUE)
+				System.out.println(u.name + " " + u.distance + " " + u.numOfShortestPaths);
+			else
+				System.out.println(u.name + " INF 0");
+		}
+	}
+
+	/**
+	 * To print the cycle in the G'
+	 * 
+	 * @param cycle:
+	 *            LinkedList<Edge> - edges of the cycle
+	 */
+	public static void printCycle(LinkedList<Edge> cycle) {
+		for (Edge e : cycle) {
+			System.out.println(e.From + " " + e.To + " " + e.Weight);
+		}
+	}
+
+	/*
+	 * The methods below run on the object graph but keep all their search state
+	 * in a SearchState, indexed by Vertex.name. They never write to a Vertex or
+	 * an Edge, so any number of threads can run them on one Graph at the same
+	 * time, each with its own SearchState.
+	 */
+
+	/**
+	 * To update the distance and parent of the other end of e with the
+	 * shortest distance. u must have been reached.
+	 * 
+	 * @param u:
+	 *            Vertex
+	 * @param e:
+	 *            Edge - an edge of u
+	 * @param s:
+	 *            SearchState
+	 * @return: true - if any changes has been done, else false
+	 */
+	public static boolean relax(Vertex u, Edge e, SearchState s) {
+		int v = e.otherEnd(u).name;
+		int d = s.distance(u.name) + e.Weight;
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.EDGE_RELAXATIONS);
+		if (s.distance(v) > d) {
+			if (Metrics.ENABLED)
+				Metrics.count(Metrics.Counter.RELAXATIONS);
+			s.setDistance(v, d);
+			s.setParent(v, u.name);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * BFS on a graph with uniform weights
+	 * 
+	 * @param g:
+	 *            Graph
+	 * @param src:
+	 *            Vertex - source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 */
+	public static void BFS(Graph g, Vertex src, SearchState s) {
+		int[] queue = s.queue();
+		int head = 0, tail = 0;
+		s.initialize(src.name);
+		queue[tail++] = src.name;
+		s.setSeen(src.name, true);
+		while (head < tail) {
+			Vertex u = g.verts.get(queue[head++]);
 			for (Edge e : u.Adj) {
-				v = e.otherEnd(u);
-				if (v.distance != u.distance + e.Weight)
-					e.edgeValid = false;
+				int v = e.otherEnd(u).name;
+				// if the Vertex is already seen, ignore that vertex
+				if (!s.seen(v)) {
+					s.setDistance(v, s.distance(u.name) + e.Weight);
+					s.setParent(v, u.name);
+					s.setSeen(v, true);
+					queue[tail++] = v;
+					if (Metrics.ENABLED)
+						Metrics.count(Metrics.Counter.QUEUE_PUSHES);
+				}
 			}
 		}
+	}
+
+	/**
+	 * Dijkstra's algorithm on a graph with only non-negative edges. A vertex
+	 * is added to the heap when it is first reached. With s reused between
+	 * queries a call only costs as much as the part of g that src reaches.
+	 * 
+	 * @param g:
+	 *            Graph
+	 * @param src:
+	 *            Vertex - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 */
+	public static void dijkstraShortestPath(Graph g, Vertex src, SearchState s) {
+		s.initialize(src.name);
+		IntPQ heap = s.heap(HeapType.BINARY);
+		heap.insert(src.name, 0);
+		while (!heap.isEmpty()) {
+			Vertex u = g.verts.get(heap.deleteMin());
+			s.setSeen(u.name, true);
+			for (Edge e : u.Adj) {
+				int v = e.otherEnd(u).name;
+				if (!s.seen(v) && relax(u, e, s)) {
+					if (heap.contains(v))
+						heap.decreaseKey(v, s.distance(v));
+					else
+						heap.insert(v, s.distance(v));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Shortest paths in topological order
+	 * 
+	 * @param g:
+	 *            Graph
+	 * @param src:
+	 *            Vertex - source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 * @param topOrder:
+	 *            int[] - names of the vertices reachable from src in
+	 *            topological order
+	 */
+	public static void DAG(Graph g, Vertex src, SearchState s, int[] topOrder) {
+		s.initialize(src.name);
+		for (int name : topOrder) {
+			if (s.distance(name) == SearchState.INF)
+				continue;
+			Vertex u = g.verts.get(name);
+			for (Edge e : u.Adj)
+				relax(u, e, s);
+		}
+	}
+
+	/**
+	 * Bellman-Ford (FIFO queue) on a graph without negative cycles
+	 * 
+	 * @param g:
+	 *            Graph
+	 * @param src:
+	 *            Vertex - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 * @return: true if there is no negative cycle, else false
+	 */
+	public static boolean bellmanFord(Graph g, Vertex src, SearchState s) {
+		int[] queue = s.queue();
+		int head = 0, tail = 0, size = 0;
+		s.initialize(src.name);
+		s.setSeen(src.name, true);
+		queue[tail++] = src.name;
+		size++;
+		while (size > 0) {
+			Vertex u = g.verts.get(queue[head]);
+			head = (head + 1) % queue.length;
+			size--;
+			s.setSeen(u.name, false);
+			s.setCount(u.name, s.count(u.name) + 1);
+			// if a vertex is visited more than the number of graphNode times
+			// then there is a cycle
+			if (s.count(u.name) >= g.numNodes)
+				return false;
+			for (Edge e : u.Adj) {
+				int v = e.otherEnd(u).name;
+				if (relax(u, e, s) && !s.seen(v)) {
+					queue[tail] = v;
+					tail = (tail + 1) % queue.length;
+					size++;
+					s.setSeen(v, true);
+					if (Metrics.ENABLED) {
+						Metrics.count(Metrics.Counter.QUEUE_PUSHES);
+						if (s.count(v) > 0)
+							Metrics.count(Metrics.Counter.BELLMAN_FORD_REENQUEUES);
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * To check if e lies on a shortest path, i.e. v.d = u.d + e.weight. This
+	 * takes the place of Edge.edgeValid.
+	 */
+	static boolean isTight(Vertex u, Edge e, SearchState s) {
+		int du = s.distance(u.name);
+		return du != SearchState.INF && (long) du + e.Weight == s.distance(e.otherEnd(u).name);
+	}
+
+	/**
+	 * Topological order of the vertices reachable from src using DFS
+	 * 
+	 * @param g:
+	 *            Graph
+	 * @param src:
+	 *            Vertex - start of the DFS
+	 * @param s:
+	 *            SearchState - its colors are used for the DFS
+	 * @param tightOnly:
+	 *            boolean - true to follow only the edges on shortest paths
+	 * @param cycle:
+	 *            LinkedList<Edge> - receives the edges of a cycle, if one is
+	 *            found. May be null
+	 * @return: int[] - names of the vertices in topological order, null if
+	 *          there is a cycle
+	 */
+	static int[] topologicalOrder(Graph g, Vertex src, SearchState s, boolean tightOnly, LinkedList<Edge> cycle) {
+		int[] order = s.queue();
+		s.clearColors();
+		int first = DFSVisit(g, src, s, order, g.numNodes, tightOnly, cycle);
+		if (first < 0)
+			return null;
+		return Arrays.copyOfRange(order, first, g.numNodes);
+	}
+
+	/**
+	 * DFS that keeps its colors in s. Finished vertices are put in order[]
+	 * from the back. The DFS uses an explicit stack, so a long path does not
+	 * overflow the thread stack.
+	 * 
+	 * @return: int - the first used position of order[], -1 if a cycle is
+	 *          found
+	 */
+	static int DFSVisit(Graph g, Vertex src, SearchState s, int[] order, int pos, boolean tightOnly,
+			LinkedList<Edge> cycle) {
+		int[] stack = s.stack(), next = s.cursor(); // next edge of each level
+		int top = 0;
+		stack[0] = src.name;
+		next[0] = 0;
+		s.setColor(src.name, SearchState.GRAY); // vertex being processed
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.DFS_VISITS);
+		while (top >= 0) {
+			Vertex u = g.verts.get(stack[top]);
+			if (next[top] == u.Adj.size()) {
+				s.setColor(u.name, SearchState.BLACK); // vertex processed
+				order[--pos] = u.name;
+				top--;
+				continue;
+			}
+			Edge e = u.Adj.get(next[top]++);
+			if (tightOnly && !isTight(u, e, s))
+				continue;
+			Vertex v = e.otherEnd(u);
+			if (s.color(v.name) == SearchState.WHITE) {
+				s.setColor(v.name, SearchState.GRAY);
+				stack[++top] = v.name;
+				if (Metrics.ENABLED)
+					Metrics.count(Metrics.Counter.DFS_VISITS);
+				next[top] = 0;
+			} else if (s.color(v.name) == SearchState.GRAY) {
+				// To detect cycle and add those edges into the list: the back
+				// edge, then the edges down the stack
+				if (cycle != null) {
+					cycle.add(e);
+					for (int i = top - 1; i >= 0; i--)
+						cycle.add(g.verts.get(stack[i]).Adj.get(next[i] - 1));
+				}
+				return -1;
+			}
+		}
+		return pos;
+	}
 
-		ArrayDeque<Vertex> stack = new ArrayDeque<>();
+	/**
+	 * To apply the algorithm that Planner finds cheapest for the graph, on its
+	 * CSR copy
+	 * 
+	 * @param g:
+	 *            Graph
+	 * @param src:
+	 *            Vertex - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 * @return: Algorithm - the algorithm used, null if the graph has a negative
+	 *          cycle
+	 */
+	public static Algorithm solve(Graph g, Vertex src, SearchState s) {
+		return solve(g.csr(), src.name, s);
+	}
+
+	/**
+	 * shortestPath(Graph, Vertex) with the results kept in s
+	 * 
+	 * @param g:
+	 *            Graph
+	 * @param src:
+	 *            Vertex - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 */
+	public static void shortestPath(Graph g, Vertex src, SearchState s) {
+		Algorithm a = solve(g, src, s);
+		long t = Metrics.start();
+		if (a == null) {
+			System.out.println("Unable to solve problem. Graph has a negative cycle");
+		} else {
+			System.out.print(a + " ");
+			sumOfShortestPaths(s);
+			if (g.numNodes <= 100)
+				printVertices(s);
+		}
+		Metrics.record(Metrics.Phase.OUTPUT, t);
+	}
+
+	/**
+	 * To count the shortest paths from src to every vertex, over the edges
+	 * with v.d = u.d + e.weight. The distances in s must be solved.
+	 * 
+	 * @param g:
+	 *            Graph
+	 * @param src:
+	 *            Vertex - Source
+	 * @param s:
+	 *            SearchState - receives numOfShortestPaths
+	 * @param cycle:
+	 *            LinkedList<Edge> - receives the edges of a cycle, if one is
+	 *            found. May be null
+	 * @return: int - sum of the number of shortest paths, -1 if the edges on
+	 *          shortest paths have a cycle
+	 */
+	public static int countShortestPaths(Graph g, Vertex src, SearchState s, LinkedList<Edge> cycle) {
+		int[] order = topologicalOrder(g, src, s, true, cycle);
+		if (order == null)
+			return -1;
+		int sumOfNumOfPaths = 0;
+		s.setNumOfShortestPaths(src.name, 1);
+		for (int name : order) {
+			Vertex u = g.verts.get(name);
+			// an undirected graph has no revAdj; its edges are all in Adj
+			for (Edge e : u.revAdj.isEmpty() ? u.Adj : u.revAdj) {
+				Vertex v = e.otherEnd(u);
+				// number of shortest paths to a vertex = sum of number of
+				// shortest paths of the vertices with the edges coming into it
+				if (isTight(v, e, s))
+					s.setNumOfShortestPaths(name, s.numOfShortestPaths(name) + s.numOfShortestPaths(v.name));
+			}
+			sumOfNumOfPaths += s.numOfShortestPaths(name);
+		}
+		return sumOfNumOfPaths;
+	}
+
+	/**
+	 * findShortestPaths(Graph, Vertex) with the results kept in s
+	 * 
+	 * @param g:
+	 *            Graph
+	 * @param src:
+	 *            Vertex - Source
+	 * @param s:
+	 *            SearchState - solved by shortestPath
+	 */
+	public static void findShortestPaths(Graph g, Vertex src, SearchState s) {
 		LinkedList<Edge> cycle = new LinkedList<>();
-		// find if G' is DAG or not
-		if (!Graph.DFSVisit(src, stack, false, true, cycle)) {
+		long t = Metrics.start();
+		int sumOfNumOfPaths = countShortestPaths(g, src, s, cycle);
+		Metrics.record(Metrics.Phase.COUNT_PATHS, t);
+		t = Metrics.start();
+		if (sumOfNumOfPaths < 0) {
 			System.out.println("Non-positive cycle in graph. DAC is not applicable");
-			// if G' is not a DAG, find and print the cycle
 			Graph.findCycle(cycle);
 			printCycle(cycle);
+		} else {
+			System.out.println(sumOfNumOfPaths);
+			if (g.numNodes <= 100)
+				printShortPaths(s);
+		}
+		Metrics.record(Metrics.Phase.OUTPUT, t);
+	}
+
+	/**
+	 * To update the distance and parent of the target of arc e with the
+	 * shortest distance. u must have been reached.
+	 * 
+	 * @param g:
+	 *            CSRGraph
+	 * @param s:
+	 *            SearchState
+	 * @param u:
+	 *            int - source of the arc
+	 * @param e:
+	 *            int - arc
+	 * @return: true - if any changes has been done, else false
+	 */
+	public static boolean relax(CSRGraph g, SearchState s, int u, int e) {
+		int v = g.target(e);
+		int d = s.distance(u) + g.weight(e);
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.EDGE_RELAXATIONS);
+		if (s.distance(v) > d) {
+			if (Metrics.ENABLED)
+				Metrics.count(Metrics.Counter.RELAXATIONS);
+			s.setDistance(v, d);
+			s.setParent(v, u);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * BFS on a CSR graph with uniform weights
+	 * 
+	 * @param g:
+	 *            CSRGraph
+	 * @param src:
+	 *            int - source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 */
+	public static void BFS(CSRGraph g, int src, SearchState s) {
+		// every vertex is enqueued at most once
+		int[] queue = s.queue();
+		int head = 0, tail = 0;
+		s.initialize(src);
+		queue[tail++] = src;
+		s.setSeen(src, true);
+		while (head < tail) {
+			int u = queue[head++];
+			for (int e = g.begin(u); e < g.end(u); e++) {
+				int v = g.target(e);
+				// if the Vertex is already seen, ignore that vertex
+				if (!s.seen(v)) {
+					s.setDistance(v, s.distance(u) + g.weight(e));
+					s.setParent(v, u);
+					s.setSeen(v, true);
+					queue[tail++] = v;
+					if (Metrics.ENABLED)
+						Metrics.count(Metrics.Counter.QUEUE_PUSHES);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Dijkstra's algorithm on a CSR graph with only non-negative edges
+	 * 
+	 * @param g:
+	 *            CSRGraph
+	 * @param src:
+	 *            int - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 */
+	public static void dijkstraShortestPath(CSRGraph g, int src, SearchState s) {
+		dijkstraShortestPath(g, src, s, HeapType.BINARY);
+	}
+
+	/**
+	 * Dijkstra's algorithm on a CSR graph with only non-negative edges
+	 * 
+	 * @param g:
+	 *            CSRGraph
+	 * @param src:
+	 *            int - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 * @param heapType:
+	 *            HeapType - the priority queue to use
+	 */
+	public static void dijkstraShortestPath(CSRGraph g, int src, SearchState s, HeapType heapType) {
+		dijkstraShortestPath(g, src, s, heapType, false);
+	}
+
+	/**
+	 * Dijkstra's algorithm on a CSR graph with only non-negative edges. In lazy
+	 * mode a vertex enters the heap when it is first reached, instead of all
+	 * vertices being put in up front, and the search ends when no reached
+	 * vertex is left; the unreachable vertices are never touched.
+	 * 
+	 * @param g:
+	 *            CSRGraph
+	 * @param src:
+	 *            int - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 * @param heapType:
+	 *            HeapType - the priority queue to use
+	 * @param lazy:
+	 *            boolean - true to insert the vertices as they are reached
+	 * @return: int - number of vertices settled from src
+	 */
+	public static int dijkstraShortestPath(CSRGraph g, int src, SearchState s, HeapType heapType, boolean lazy) {
+		s.initialize(src);
+		// Create a indexed heap with vertex distance as the priority. The lazy
+		// search always empties its heap, so it can reuse the one in s
+		IntPQ heap;
+		if (lazy) {
+			heap = s.heap(heapType);
+			heap.insert(src, 0);
+		} else {
+			heap = heapType.create(g.numNodes);
+			// Dial's buckets cannot hold INF keys; its unreached vertices go
+			// in when they are reached, as in lazy mode
+			for (int u = 1; u <= g.numNodes; u++)
+				if (heapType != HeapType.DIAL || s.distance(u) != SearchState.INF)
+					heap.insert(u, s.distance(u));
+		}
+
+		int settled = 0;
+		while (!heap.isEmpty()) {
+			int u = heap.deleteMin();
+			s.setSeen(u, true);
+			if (s.distance(u) == SearchState.INF)
+				break; // the rest of the heap is not reachable from src
+			settled++;
+			for (int e = g.begin(u); e < g.end(u); e++) {
+				int v = g.target(e);
+				// change the priority of the vertex as its distance is changed
+				if (!s.seen(v) && relax(g, s, u, e)) {
+					if (heap.contains(v))
+						heap.decreaseKey(v, s.distance(v));
+					else
+						heap.insert(v, s.distance(v));
+				}
+			}
+		}
+		return settled;
+	}
+
+	/**
+	 * Shortest paths on a CSR graph in topological order
+	 * 
+	 * @param g:
+	 *            CSRGraph
+	 * @param src:
+	 *            int - source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 * @param topOrder:
+	 *            int[] - vertices reachable from src in topological order
+	 */
+	public static void DAG(CSRGraph g, int src, SearchState s, int[] topOrder) {
+		s.initialize(src);
+		// process the vertices in the topological order
+		for (int u : topOrder) {
+			if (s.distance(u) == SearchState.INF)
+				continue;
+			for (int e = g.begin(u); e < g.end(u); e++)
+				relax(g, s, u, e);
+		}
+	}
+
+	/**
+	 * Bellman-Ford (FIFO queue) on a CSR graph
+	 * 
+	 * @param g:
+	 *            CSRGraph
+	 * @param src:
+	 *            int - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 * @return: true if there is no negative cycle, else false
+	 */
+	public static boolean bellmanFord(CSRGraph g, int src, SearchState s) {
+		// circular queue; a vertex is never in the queue twice
+		int[] queue = s.queue();
+		int head = 0, tail = 0, size = 0;
+		s.initialize(src);
+		s.setSeen(src, true);
+		queue[tail++] = src;
+		size++;
+		while (size > 0) {
+			int u = queue[head];
+			head = (head + 1) % queue.length;
+			size--;
+			s.setSeen(u, false);
+			s.setCount(u, s.count(u) + 1);
+			// if a vertex is visited more than the number of graphNode times
+			// then there is a cycle
+			if (s.count(u) >= g.numNodes)
+				return false;
+			for (int e = g.begin(u); e < g.end(u); e++) {
+				int v = g.target(e);
+				if (relax(g, s, u, e)) {
+					if (!s.seen(v)) {
+						queue[tail] = v;
+						tail = (tail + 1) % queue.length;
+						size++;
+						s.setSeen(v, true);
+						if (Metrics.ENABLED) {
+							Metrics.count(Metrics.Counter.QUEUE_PUSHES);
+							if (s.count(v) > 0)
+								Metrics.count(Metrics.Counter.BELLMAN_FORD_REENQUEUES);
+						}
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * To check if the arc e lies on a shortest path, i.e. v.d = u.d + e.weight
+	 */
+	static boolean isTight(CSRGraph g, SearchState s, int u, int e) {
+		int du = s.distance(u);
+		return du != SearchState.INF && (long) du + g.weight(e) == s.distance(g.target(e));
+	}
+
+	/**
+	 * Topological order of the vertices reachable from src using DFS
+	 * 
+	 * @param g:
+	 *            CSRGraph
+	 * @param src:
+	 *            int - start of the DFS
+	 * @param s:
+	 *            SearchState - its colors are used for the DFS
+	 * @param tightOnly:
+	 *            boolean - true to follow only the arcs on shortest paths
+	 * @param cycle:
+	 *            LinkedList<Integer> - receives the arcs of a cycle, if one is
+	 *            found. May be null
+	 * @return: int[] - the vertices in topological order, null if there is a
+	 *          cycle
+	 */
+	static int[] topologicalOrder(CSRGraph g, int src, SearchState s, boolean tightOnly, LinkedList<Integer> cycle) {
+		int[] order = s.queue();
+		s.clearColors();
+		int first = DFSVisit(g, src, s, order, order.length, tightOnly, cycle);
+		if (first < 0)
+			return null;
+		return Arrays.copyOfRange(order, first, order.length);
+	}
+
+	/**
+	 * DFS on a CSR graph. Finished vertices are put in order[] from the back.
+	 * The DFS uses an explicit stack, so a long path does not overflow the
+	 * thread stack.
+	 * 
+	 * @return: int - the first used position of order[], -1 if a cycle is
+	 *          found
+	 */
+	static int DFSVisit(CSRGraph g, int src, SearchState s, int[] order, int pos, boolean tightOnly,
+			LinkedList<Integer> cycle) {
+		int[] stack = s.stack(), next = s.cursor(); // next arc of each level
+		int top = 0;
+		stack[0] = src;
+		next[0] = g.begin(src);
+		s.setColor(src, SearchState.GRAY); // vertex being processed
+		if (Metrics.ENABLED)
+			Metrics.count(Metrics.Counter.DFS_VISITS);
+		while (top >= 0) {
+			int u = stack[top];
+			int e = next[top];
+			if (e == g.end(u)) {
+				s.setColor(u, SearchState.BLACK); // vertex processed
+				order[--pos] = u;
+				top--;
+				continue;
+			}
+			next[top] = e + 1;
+			if (tightOnly && !isTight(g, s, u, e))
+				continue;
+			int v = g.target(e);
+			if (s.color(v) == SearchState.WHITE) {
+				s.setColor(v, SearchState.GRAY);
+				stack[++top] = v;
+				if (Metrics.ENABLED)
+					Metrics.count(Metrics.Counter.DFS_VISITS);
+				next[top] = g.begin(v);
+			} else if (s.color(v) == SearchState.GRAY) {
+				// To detect cycle and add those arcs into the list: the back
+				// arc, then the arcs down the stack
+				if (cycle != null) {
+					cycle.add(e);
+					for (int i = top - 1; i >= 0; i--)
+						cycle.add(next[i] - 1);
+				}
+				return -1;
+			}
+		}
+		return pos;
+	}
+
+	/**
+	 * To find the cycle in a list of arcs filled by DFSVisit. Same as
+	 * Graph.findCycle.
+	 * 
+	 * @param g:
+	 *            CSRGraph
+	 * @param cycle:
+	 *            LinkedList<Integer> - arcs
+	 */
+	static void findCycle(CSRGraph g, LinkedList<Integer> cycle) {
+		boolean remove = false;
+		Iterator<Integer> itr = cycle.iterator();
+		if (!itr.hasNext())
 			return;
+		// the target of the first arc is where the cycle starts
+		int first = g.target(itr.next());
+		while (itr.hasNext()) {
+			if (g.target(itr.next()) == first)
+				remove = true;
+			if (remove)
+				itr.remove();
 		}
+	}
 
-		// if D' is a DAG, find number of possible shortest paths from source to
-		// each vertex and print them
-		src.numOfShortestPaths = 1;
-		for (Vertex u : stack) {
-			for (Edge e : u.revAdj) {
-				if (!e.edgeValid)
-					continue;
-				v = e.otherEnd(u);
+	/**
+	 * To apply the algorithm that Planner finds cheapest for a CSR graph
+	 * 
+	 * @param g:
+	 *            CSRGraph
+	 * @param src:
+	 *            int - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 * @return: Algorithm - the algorithm used, null if the graph has a negative
+	 *          cycle
+	 */
+	public static Algorithm solve(CSRGraph g, int src, SearchState s) {
+		return solve(g, src, s, false);
+	}
+
+	/**
+	 * To apply the algorithm that Planner finds cheapest for a CSR graph
+	 * 
+	 * @param g:
+	 *            CSRGraph
+	 * @param src:
+	 *            int - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 * @param parallel:
+	 *            boolean - true to let the plan use ParallelBFS,
+	 *            delta-stepping and ParallelBellmanFord, with the threads of
+	 *            the common ForkJoinPool
+	 * @return: Algorithm - the algorithm used, null if the graph has a negative
+	 *          cycle
+	 */
+	public static Algorithm solve(CSRGraph g, int src, SearchState s, boolean parallel) {
+		long t = Metrics.start();
+		Planner.Plan plan = Planner.plan(g, parallel ? ForkJoinPool.commonPool().getParallelism() : 1);
+		Metrics.record(Metrics.Phase.CLASSIFY, t);
+		Algorithm a = plan.run(g, src, s);
+		Metrics.record(Metrics.Phase.SOLVE, t);
+		return a;
+	}
+
+	/**
+	 * CSR version of shortestPath(Graph, Vertex)
+	 * 
+	 * @param g:
+	 *            CSRGraph
+	 * @param src:
+	 *            int - Source
+	 * @param s:
+	 *            SearchState - receives the distances and parents
+	 */
+	public static void shortestPath(CSRGraph g, int src, SearchState s) {
+		Algorithm a = solve(g, src, s);
+		long t = Metrics.start();
+		if (a == null) {
+			System.out.println("Unable to solve problem. Graph has a negative cycle");
+			// SCCHybrid tells which components hold the cycles
+			if (s.negativeCycles != null)
+				System.out.print(Planner.properties(g).hybrid.report(s.negativeCycles));
+		} else {
+			System.out.print(a + " ");
+			sumOfShortestPaths(s);
+			if (g.numNodes <= 100)
+				printVertices(s);
+		}
+		Metrics.record(Metrics.Phase.OUTPUT, t);
+	}
+
+	/**
+	 * To count the shortest paths from src to every vertex, over the arcs
+	 * with v.d = u.d + e.weight. The distances in s must be solved.
+	 * 
+	 * @param g:
+	 *            CSRGraph
+	 * @param src:
+	 *            int - Source
+	 * @param s:
+	 *            SearchState - receives numOfShortestPaths
+	 * @param cycle:
+	 *            LinkedList<Integer> - receives the arcs of a cycle, if one is
+	 *            found. May be null
+	 * @return: int - sum of the number of shortest paths, -1 if the arcs on
+	 *          shortest paths have a cycle
+	 */
+	public static int countShortestPaths(CSRGraph g, int src, SearchState s, LinkedList<Integer> cycle) {
+		int[] order = topologicalOrder(g, src, s, true, cycle);
+		if (order == null)
+			return -1;
+		int sumOfNumOfPaths = 0;
+		s.setNumOfShortestPaths(src, 1);
+		for (int u : order) {
+			int du = s.distance(u);
+			for (int r = g.rbegin(u); r < g.rend(u); r++) {
+				int v = g.rsource(r);
 				// number of shortest paths to a vertex = sum of number of
 				// shortest paths of the vertices with the edges coming into it
-				u.numOfShortestPaths += v.numOfShortestPaths;
+				if (s.distance(v) != SearchState.INF && (long) s.distance(v) + g.rweight(r) == du)
+					s.setNumOfShortestPaths(u, s.numOfShortestPaths(u) + s.numOfShortestPaths(v));
 			}
-			g.sumOfNumOfPaths += u.numOfShortestPaths;
+			sumOfNumOfPaths += s.numOfShortestPaths(u);
 		}
-
-		System.out.println(g.sumOfNumOfPaths);
-		if (g.numNodes <= 100)
-			printShortPaths(g);
+		return sumOfNumOfPaths;
 	}
 
 	/**
-	 * To print the number of the shortest path to each vertex from the source
-	 * vertex
+	 * CSR version of findShortestPaths(Graph, Vertex)
 	 * 
 	 * @param g:
-	 *            Graph
+	 *            CSRGraph
+	 * @param src:
+	 *            int - Source
+	 * @param s:
+	 *            SearchState - solved by shortestPath
 	 */
-	public static void printShortPaths(Graph g) {
-		for (Vertex u : g) {
-			if (u.distance != Integer.MAX_VALUE)
-				System.out.println(u.name + " " + u.distance + " " + u.numOfShortestPaths);
+	public static void findShortestPaths(CSRGraph g, int src, SearchState s) {
+		LinkedList<Integer> cycle = new LinkedList<>();
+		long t = Metrics.start();
+		int sumOfNumOfPaths = countShortestPaths(g, src, s, cycle);
+		Metrics.record(Metrics.Phase.COUNT_PATHS, t);
+		t = Metrics.start();
+		if (sumOfNumOfPaths < 0) {
+			System.out.println("Non-positive cycle in graph. DAC is not applicable");
+			findCycle(g, cycle);
+			printCycle(g, cycle);
+		} else {
+			System.out.println(sumOfNumOfPaths);
+			if (g.numNodes <= 100)
+				printShortPaths(s);
+		}
+		Metrics.record(Metrics.Phase.OUTPUT, t);
+	}
+
+	/**
+	 * To print the vertex, its distance and its parent vertex
+	 */
+	public static void printVertices(SearchState s) {
+		for (int u = 1; u <= s.numNodes; u++) {
+			if (s.distance(u) != SearchState.INF)
+				if (s.parent(u) != 0)
+					System.out.println(u + " " + s.distance(u) + " " + s.parent(u));
+				else
+					System.out.println(u + " " + s.distance(u) + " -");
 			else
-				System.out.println(u.name + " INF 0");
+				System.out.println(u + " INF -");
 		}
 	}
 
 	/**
-	 * To print the cycle in the G'
-	 * 
-	 * @param cycle:
-	 *            LinkedList<Edge> - edges of the cycle
+	 * To find the sum of the shortest paths distances to all the vertices
 	 */
-	public static void printCycle(LinkedList<Edge> cycle) {
-		for (Edge e : cycle) {
-			System.out.println(e.From + " " + e.To + " " + e.Weight);
+	public static void sumOfShortestPaths(SearchState s) {
+		int sumWShortestPaths = 0;
+		// only the vertices the search has written can have a parent
+		for (int i = 0; i < s.numTouched(); i++) {
+			int u = s.touched(i);
+			if (s.parent(u) != 0)
+				sumWShortestPaths += s.distance(u);
 		}
+		System.out.print(sumWShortestPaths);
+		System.out.println();
 	}
 
-	public static void main(String[] args) throws FileNotFoundException {
-		Scanner in;
-		// if (args.length > 0) {
-		// File input = new File(args[0]);
-		// in = new Scanner(input);
-		// } else {
-		// in = new Scanner(System.in);
-		// }
+	/**
+	 * To print the number of the shortest path to each vertex from the source
+	 */
+	public static void printShortPaths(SearchState s) {
+		for (int u = 1; u <= s.numNodes; u++) {
+			if (s.distance(u) != SearchState.INF)
+				System.out.println(u + " " + s.distance(u) + " " + s.numOfShortestPaths(u));
+			else
+				System.out.println(u + " INF 0");
+		}
+	}
 
-		File input = new File("lp3-l1-in4.txt");
-		in = new Scanner(input);
+	/**
+	 * To print the arcs of a cycle
+	 */
+	public static void printCycle(CSRGraph g, LinkedList<Integer> cycle) {
+		for (int e : cycle) {
+			System.out.println(g.arcSource(e) + " " + g.target(e) + " " + g.weight(e));
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		File input = new File(args.length > 0 ? args[0] : "lp3-l1-in4.txt");
+		CSRGraph g;
+		if (input.getName().endsWith(".bin")) {
+			Timer load = new Timer();
+			g = BinaryGraph.open(input.toPath());
+			System.out.println("Open: " + load.end().elapsedTime + " msec.");
+		} else {
+			GraphReader reader = GraphReader.open(input.toPath());
+			g = reader.readCSR(true);
+			System.out.println(reader);
+		}
 
+		if (args.length > 1 && args[1].equals("explain"))
+			System.out.println(Planner.plan(g).explain());
+		SearchState s = new SearchState(g.numNodes);
 		Timer t = new Timer();
-		Graph g = Graph.readGraph(in, true);
 		t.start();
-		shortestPath(g, g.verts.get(1));
-		findShortestPaths(g, g.verts.get(1));
+		shortestPath(g, 1, s);
+		findShortestPaths(g, 1, s);
 		t.end();
 		System.out.println(t);
+		if (Metrics.ENABLED)
+			System.out.println(Metrics.report());
 	}
 }
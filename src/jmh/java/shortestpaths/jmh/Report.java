@@ -0,0 +1,260 @@
+package shortestpaths.jmh;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.results.BenchmarkResult;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.util.Statistics;
+
+/**
+ * Runs the benchmarks of ShortestPathBenchmarks with JMH and writes one row
+ * per benchmark, shape and size, in CSV or JSON. Given the CSV report of an
+ * earlier run as a baseline, the rows that got slower than the threshold are
+ * listed and the exit status is 1.
+ *
+ * The options left out keep the settings of the annotations; -shapes only
+ * keeps the shapes a benchmark runs on.
+ *
+ * Usage: gradle benchmarkReport --args="[-wi 3] [-i 5] [-f 2] [-r 500]
+ *            [-sizes 1000,10000] [-degree 80] [-shapes uniform,positive]
+ *            [-bench regex] [-format csv|json] [-o report]
+ *            [-baseline report.csv] [-threshold 10]"
+ *        -f 0 runs in this JVM; -r is the iteration time in msec.
+ */
+public class Report {
+	static final String CSV_HEADER = "benchmark,shape,vertices,edges,forks,samples,mean_ms,stddev_ms,min_ms,max_ms";
+
+	Integer warmupIterations, iterations, forks, iterationMillis, degree;
+	List<String> sizes, shapes;
+	String bench = ".*", format = "csv", output, baseline;
+	double threshold = 10;
+
+	/**
+	 * Scores of one benchmark, shape and size over all forks
+	 */
+	static class Result {
+		final String bench, shape;
+		final int n;
+		final long m;
+		final int forks;
+		final double mean, stddev, min, max;
+		final double[] scores;
+
+		Result(String bench, String shape, int n, long m, RunResult run) {
+			this.bench = bench;
+			this.shape = shape;
+			this.n = n;
+			this.m = m;
+			this.forks = run.getParams().getForks();
+			Statistics st = run.getPrimaryResult().getStatistics();
+			mean = st.getMean();
+			stddev = st.getN() > 1 ? st.getStandardDeviation() : 0;
+			min = st.getMin();
+			max = st.getMax();
+			List<Double> s = new ArrayList<>();
+			for (BenchmarkResult b : run.getBenchmarkResults())
+				for (IterationResult i : b.getIterationResults())
+					s.add(i.getPrimaryResult().getScore());
+			scores = s.stream().mapToDouble(Double::doubleValue).toArray();
+		}
+
+		String key() {
+			return bench + "," + shape + "," + n;
+		}
+	}
+
+	static String csv(List<Result> results) {
+		StringBuilder sb = new StringBuilder(CSV_HEADER).append('\n');
+		for (Result r : results)
+			sb.append(String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%d,%.4f,%.4f,%.4f,%.4f%n", r.bench, r.shape, r.n,
+					r.m, r.forks, r.scores.length, r.mean, r.stddev, r.min, r.max));
+		return sb.toString();
+	}
+
+	static String json(List<Result> results) {
+		StringBuilder sb = new StringBuilder("[\n");
+		for (int i = 0; i < results.size(); i++) {
+			Result r = results.get(i);
+			sb.append(String.format(Locale.ROOT,
+					"  {\"benchmark\": \"%s\", \"shape\": \"%s\", \"vertices\": %d, \"edges\": %d, \"forks\": %d, "
+							+ "\"mean_ms\": %.4f, \"stddev_ms\": %.4f, \"min_ms\": %.4f, \"max_ms\": %.4f, "
+							+ "\"scores_ms\": %s}",
+					r.bench, r.shape, r.n, r.m, r.forks, r.mean, r.stddev, r.min, r.max,
+					Arrays.toString(r.scores)));
+			sb.append(i + 1 < results.size() ? ",\n" : "\n");
+		}
+		return sb.append("]\n").toString();
+	}
+
+	/**
+	 * Rows that are slower than in a baseline CSV report by more than the
+	 * threshold
+	 *
+	 * @return: List<String> - one line per regression
+	 */
+	List<String> regressions(List<Result> results, Path base) throws IOException {
+		Map<String, Double> before = new HashMap<>();
+		for (String line : Files.readAllLines(base, StandardCharsets.UTF_8)) {
+			String[] f = line.split(",");
+			if (f.length >= 7 && !line.equals(CSV_HEADER))
+				before.put(f[0] + "," + f[1] + "," + f[2], Double.parseDouble(f[6]));
+		}
+		List<String> slower = new ArrayList<>();
+		for (Result r : results) {
+			Double old = before.get(r.key());
+			if (old != null && old > 0 && r.mean > old * (1 + threshold / 100))
+				slower.add(String.format(Locale.ROOT, "%s: %.4f ms -> %.4f ms (+%.1f%%)", r.key(), old, r.mean,
+						100 * (r.mean / old - 1)));
+		}
+		return slower;
+	}
+
+	/**
+	 * The shapes to run a benchmark on: the defaults of its shape parameter,
+	 * or those of -shapes that it runs on; "-" if it has none
+	 */
+	List<String> shapes(Class<?> c, String name) throws ReflectiveOperationException {
+		Param p;
+		try {
+			p = c.getField("shape").getAnnotation(Param.class);
+		} catch (NoSuchFieldException e) {
+			return Collections.singletonList("-");
+		}
+		if (shapes == null)
+			return Arrays.asList(p.value());
+		Method runsOn = Class.forName("Benchmark").getMethod("runsOn", String.class, String.class);
+		List<String> keep = new ArrayList<>();
+		for (String shape : shapes)
+			if ((Boolean) runsOn.invoke(null, name, shape))
+				keep.add(shape);
+		return keep;
+	}
+
+	/**
+	 * Run all selected benchmarks and write the report
+	 *
+	 * @return: int - exit status, 1 if there are regressions
+	 */
+	int runAll() throws IOException, RunnerException, ReflectiveOperationException {
+		Method edges = Class.forName("Benchmark").getMethod("edges", String.class, int.class, int.class);
+		List<Result> results = new ArrayList<>();
+		for (Class<?> c : ShortestPathBenchmarks.class.getDeclaredClasses()) {
+			if (Modifier.isAbstract(c.getModifiers()))
+				continue;
+			ShortestPathBenchmarks.Base b = (ShortestPathBenchmarks.Base) c.getConstructor().newInstance();
+			String name = b.bench();
+			if (!name.matches(bench))
+				continue;
+			List<String> runShapes = shapes(c, name);
+			if (runShapes.isEmpty())
+				continue;
+
+			ChainedOptionsBuilder opt = new OptionsBuilder().include(c.getName().replace("$", ".") + ".run$");
+			if (warmupIterations != null)
+				opt.warmupIterations(warmupIterations);
+			if (iterations != null)
+				opt.measurementIterations(iterations);
+			if (forks != null)
+				opt.forks(forks);
+			if (iterationMillis != null) {
+				opt.warmupTime(TimeValue.milliseconds(iterationMillis));
+				opt.measurementTime(TimeValue.milliseconds(iterationMillis));
+			}
+			if (sizes != null)
+				opt.param("n", sizes.toArray(new String[0]));
+			if (degree != null)
+				opt.param("degree", degree.toString());
+			if (!runShapes.get(0).equals("-"))
+				opt.param("shape", runShapes.toArray(new String[0]));
+			opt.timeUnit(TimeUnit.MILLISECONDS);
+
+			for (RunResult run : new Runner(opt.build()).run()) {
+				String shape = run.getParams().getParam("shape");
+				if (shape == null)
+					shape = "-";
+				int n = Integer.parseInt(run.getParams().getParam("n"));
+				int d = Integer.parseInt(run.getParams().getParam("degree"));
+				results.add(new Result(name, shape, n, (Long) edges.invoke(null, shape, n, d), run));
+			}
+		}
+		results.sort(Comparator.comparing((Result r) -> r.bench).thenComparing(r -> r.shape)
+				.thenComparingInt(r -> r.n));
+
+		String report = format.equals("json") ? json(results) : csv(results);
+		if (output == null)
+			System.out.print(report);
+		else
+			Files.write(Paths.get(output), report.getBytes(StandardCharsets.UTF_8));
+
+		if (baseline == null)
+			return 0;
+		List<String> slower = regressions(results, Paths.get(baseline));
+		for (String line : slower)
+			System.err.println("Regression " + line);
+		return slower.isEmpty() ? 0 : 1;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Report r = new Report();
+		for (int i = 0; i < args.length; i++) {
+			String a = args[i];
+			if (i + 1 == args.length)
+				throw new IllegalArgumentException("Missing value of " + a);
+			String v = args[++i];
+			switch (a) {
+			case "-wi":
+				r.warmupIterations = Integer.parseInt(v);
+				break;
+			case "-i":
+				r.iterations = Integer.parseInt(v);
+				break;
+			case "-f":
+				r.forks = Integer.parseInt(v);
+				break;
+			case "-r":
+				r.iterationMillis = Integer.parseInt(v);
+				break;
+			case "-sizes":
+				r.sizes = Arrays.asList(v.split(","));
+				break;
+			case "-degree":
+				r.degree = Integer.parseInt(v);
+				break;
+			case "-shapes":
+				r.shapes = Arrays.asList(v.split(","));
+				break;
+			case "-bench":
+				r.bench = v;
+				break;
+			case "-format":
+				r.format = v;
+				break;
+			case "-o":
+				r.output = v;
+				break;
+			case "-baseline":
+				r.baseline = v;
+				break;
+			case "-threshold":
+				r.threshold = Double.parseDouble(v);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + a);
+			}
+		}
+		System.exit(r.runAll());
+	}
+}
@@ -0,0 +1,168 @@
+package shortestpaths.jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks of the shortest path methods: one nested class per benchmark
+ * of Benchmark, whose shape parameter lists the graph shapes its method
+ * applies to. The code they time comes from Benchmark.task(), which is in the
+ * default package and so is only reached by reflection, once per trial.
+ *
+ * Usage: gradle jmh
+ */
+public class ShortestPathBenchmarks {
+
+	@State(Scope.Benchmark)
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+	@Fork(2)
+	public abstract static class Base {
+		@Param({ "1000", "10000" })
+		public int n;
+		@Param("80")
+		public int degree;
+
+		private LongSupplier task;
+
+		/** name of the benchmark in Benchmark */
+		abstract String bench();
+
+		/** graph shape, "-" for the heaps */
+		String shape() {
+			return "-";
+		}
+
+		@Setup(Level.Trial)
+		public void setup() throws ReflectiveOperationException {
+			task = (LongSupplier) Class.forName("Benchmark")
+					.getMethod("task", String.class, String.class, int.class, int.class)
+					.invoke(null, bench(), shape(), n, degree);
+		}
+
+		@Benchmark
+		public long run() {
+			return task.getAsLong();
+		}
+	}
+
+	public static class BFS extends Base {
+		@Param("uniform")
+		public String shape;
+
+		String bench() {
+			return "BFS";
+		}
+
+		String shape() {
+			return shape;
+		}
+	}
+
+	public static class DAG extends Base {
+		@Param("dag")
+		public String shape;
+
+		String bench() {
+			return "DAG";
+		}
+
+		String shape() {
+			return shape;
+		}
+	}
+
+	public static class DijkstraShortestPath extends Base {
+		@Param({ "uniform", "positive" })
+		public String shape;
+
+		String bench() {
+			return "dijkstraShortestPath";
+		}
+
+		String shape() {
+			return shape;
+		}
+	}
+
+	public static class BellmanFord extends Base {
+		@Param({ "uniform", "positive", "dag", "negative" })
+		public String shape;
+
+		String bench() {
+			return "bellmanFord";
+		}
+
+		String shape() {
+			return shape;
+		}
+	}
+
+	public static class GoldbergRadzik extends Base {
+		@Param({ "uniform", "positive", "dag", "negative" })
+		public String shape;
+
+		String bench() {
+			return "goldbergRadzik";
+		}
+
+		String shape() {
+			return shape;
+		}
+	}
+
+	public static class CostScaling extends Base {
+		@Param({ "uniform", "positive", "dag", "negative" })
+		public String shape;
+
+		String bench() {
+			return "costScaling";
+		}
+
+		String shape() {
+			return shape;
+		}
+	}
+
+	public static class FindShortestPaths extends Base {
+		@Param({ "uniform", "positive", "dag", "negative" })
+		public String shape;
+
+		String bench() {
+			return "findShortestPaths";
+		}
+
+		String shape() {
+			return shape;
+		}
+	}
+
+	public static class ReadGraph extends Base {
+		@Param({ "uniform", "positive", "dag", "negative" })
+		public String shape;
+
+		String bench() {
+			return "readGraph";
+		}
+
+		String shape() {
+			return shape;
+		}
+	}
+
+	public static class BinaryHeap extends Base {
+		String bench() {
+			return "BinaryHeap";
+		}
+	}
+
+	public static class IndexedHeap extends Base {
+		String bench() {
+			return "IndexedHeap";
+		}
+	}
+}